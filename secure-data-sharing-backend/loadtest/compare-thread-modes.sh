@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Runs decrypt-load.js against the backend twice: default Tomcat platform threads, then the
+# "virtual" profile (virtual request threads + bounded crypto pool). Summaries are written to
+# build/loadtest-platform.json and build/loadtest-virtual.json.
+#
+# Requires a JDK 21 toolchain, k6 on the PATH and the PostgreSQL database from application.properties.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+./gradlew -q bootJar -PjavaVersion=21
+JAR=$(ls build/libs/*.jar | grep -v -- '-plain' | head -n 1)
+
+run_mode() {
+    local mode=$1 profile=$2
+    java -jar "$JAR" --spring.profiles.active="$profile" > "build/loadtest-$mode.log" 2>&1 &
+    local pid=$!
+    trap "kill $pid 2>/dev/null || true" EXIT
+    until curl -sf http://localhost:8080/users > /dev/null; do sleep 1; done
+
+    k6 run --summary-export "build/loadtest-$mode.json" loadtest/decrypt-load.js
+
+    kill "$pid"
+    wait "$pid" || true
+    trap - EXIT
+}
+
+run_mode platform default
+run_mode virtual virtual
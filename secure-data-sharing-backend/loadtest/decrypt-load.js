@@ -0,0 +1,45 @@
+// k6 load test: 1000 concurrent clients listing and decrypting a patient's records.
+// Mixes DB-bound requests (record list) with CPU-bound ones (decrypt).
+//
+//   k6 run --summary-export build/loadtest-<mode>.json loadtest/decrypt-load.js
+//
+// Normally driven by compare-thread-modes.sh, which runs it once per thread mode.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const RECORDS = 20;
+
+export const options = {
+    scenarios: {
+        dashboards: {
+            executor: 'constant-vus',
+            vus: Number(__ENV.VUS || 1000),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const users = http.get(`${BASE_URL}/users`).json();
+    const patient = users.find(u => u.role === 'PATIENT');
+    const doctor = users.find(u => u.role === 'DOCTOR_A');
+
+    const params = { headers: { 'Content-Type': 'application/json' } };
+    const recordIds = [];
+    for (let i = 0; i < RECORDS; i++) {
+        const body = JSON.stringify({ doctorId: doctor.id, patientId: patient.id, diagnosis: `Load test diagnosis ${i}` });
+        recordIds.push(http.post(`${BASE_URL}/doctorA/create-record`, body, params).json().id);
+    }
+    return { patientId: patient.id, recordIds };
+}
+
+export default function (data) {
+    const list = http.get(`${BASE_URL}/patient/${data.patientId}/records`, { tags: { name: 'records' } });
+    check(list, { 'records 200': r => r.status === 200 });
+
+    const recordId = data.recordIds[Math.floor(Math.random() * data.recordIds.length)];
+    const decrypt = http.get(`${BASE_URL}/patient/${data.patientId}/records/${recordId}/decrypt`, { tags: { name: 'decrypt' } });
+    check(decrypt, { 'decrypt 200': r => r.status === 200 });
+}
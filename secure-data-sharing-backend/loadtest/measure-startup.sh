@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+# Measures time-to-first-successful-request: from launching the JVM until GET /users answers 200.
+# Runs each configuration RUNS times (default 5) and prints every run plus the median, for:
+#   default   - default profile
+#   startup   - "startup" profile (lazy crypto init, background seeding)
+#   cds       - "startup" profile plus the AppCDS archive from ./gradlew cdsArchive
+#
+# Requires the PostgreSQL database from application.properties and port 8080 to be free.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+URL=http://localhost:8080/users
+
+./gradlew -q cdsArchive
+CLASSPATH=$(cat build/cds/classpath.txt)
+MAIN=com.antigravity.securedata.SecureDataSharingApplication
+
+now_ms() { date +%s%3N; }
+
+measure() {
+    local label=$1; shift
+    local times=()
+    for run in $(seq "$RUNS"); do
+        local start pid
+        start=$(now_ms)
+        java "$@" -cp "$CLASSPATH" "$MAIN" > "build/startup-$label.log" 2>&1 &
+        pid=$!
+        trap "kill $pid 2>/dev/null || true" EXIT
+        until curl -sf "$URL" > /dev/null; do
+            kill -0 "$pid" 2>/dev/null || { echo "$label: application exited, see build/startup-$label.log"; exit 1; }
+            sleep 0.05
+        done
+        times+=($(( $(now_ms) - start )))
+        kill "$pid"
+        wait "$pid" 2>/dev/null || true
+        trap - EXIT
+    done
+    local median
+    median=$(printf '%s\n' "${times[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    echo "$label: ${times[*]} ms (median $median ms)"
+}
+
+measure default
+measure startup -Dspring.profiles.active=startup
+measure cds -Dspring.profiles.active=startup -XX:SharedArchiveFile=build/cds/app.jsa
@@ -0,0 +1,108 @@
+package com.antigravity.securedata.service;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Symmetric half of encryptData and decryptData, before and after CryptoContextPool:
+ *
+ *   fresh*  - new SecureRandoms (encrypt only), MessageDigest.getInstance and
+ *             Cipher.getInstance per call, as encryptData/decryptData used to do
+ *   pooled* - the shared SecureRandom and a borrowed context, as they do now
+ *
+ * Compare gc.alloc.rate.norm (bytes per operation, from the gc profiler configured in
+ * build.gradle) as well as the score. CryptographyServiceBenchmark gives the end-to-end
+ * encrypt/decrypt numbers.
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=CryptoContextBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CryptoContextBenchmark {
+
+    private static final int MAX_S = 100000;
+
+    private final CryptoContextPool pool = new CryptoContextPool("secp256k1", 16);
+    private final SecureRandom random = new SecureRandom();
+    private byte[] data;
+    private int s;
+    private byte[] iv;
+    private byte[] ciphertext;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        data = new byte[1024];
+        s = random.nextInt(MAX_S);
+        iv = new byte[16];
+        random.nextBytes(iv);
+        byte[] key = MessageDigest.getInstance("SHA-256").digest(String.valueOf(s).getBytes());
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, 0, 16, "AES"), new IvParameterSpec(iv));
+        ciphertext = cipher.doFinal(data);
+    }
+
+    @Benchmark
+    public byte[] freshEncrypt() throws Exception {
+        int s = new SecureRandom().nextInt(MAX_S);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] key = digest.digest(String.valueOf(s).getBytes());
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, 0, 16, "AES"), new IvParameterSpec(iv));
+        byte[] out = cipher.doFinal(data);
+        new BigInteger(256, new SecureRandom());
+        return out;
+    }
+
+    @Benchmark
+    public byte[] pooledEncrypt() throws Exception {
+        int s = random.nextInt(MAX_S);
+        byte[] iv = new byte[16];
+        random.nextBytes(iv);
+        CryptoContextPool.Context context = pool.borrow();
+        try {
+            byte[] key = context.sha256.digest(String.valueOf(s).getBytes());
+            Cipher cbc = context.aesCbc();
+            cbc.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, 0, 16, "AES"), new IvParameterSpec(iv));
+            byte[] out = cbc.doFinal(data);
+            new BigInteger(256, random);
+            return out;
+        } finally {
+            pool.release(context);
+        }
+    }
+
+    @Benchmark
+    public byte[] freshDecrypt() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] key = digest.digest(String.valueOf(s).getBytes());
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, 0, 16, "AES"), new IvParameterSpec(iv));
+        return cipher.doFinal(ciphertext);
+    }
+
+    @Benchmark
+    public byte[] pooledDecrypt() throws Exception {
+        CryptoContextPool.Context context = pool.borrow();
+        try {
+            byte[] key = context.sha256.digest(String.valueOf(s).getBytes());
+            Cipher cbc = context.aesCbc();
+            cbc.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, 0, 16, "AES"), new IvParameterSpec(iv));
+            return cbc.doFinal(ciphertext);
+        } finally {
+            pool.release(context);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.antigravity.securedata.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput baseline for every CryptographyService operation.
+ *
+ * The gc profiler is enabled in build.gradle, so each result also carries
+ * gc.alloc.rate.norm (bytes allocated per operation).
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=CryptographyServiceBenchmark
+ * Results land in build/results/jmh/results.json.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CryptographyServiceBenchmark {
+
+    private CryptographyService cryptoService;
+    private KeyPair patientKeys;
+    private KeyPair doctorKeys;
+    private BigInteger rk;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        cryptoService = new CryptographyService();
+        cryptoService.init();
+        patientKeys = cryptoService.generateKeyPair();
+        doctorKeys = cryptoService.generateKeyPair();
+        rk = cryptoService.generateReEncryptionKey(patientKeys.getPrivate(), doctorKeys.getPrivate());
+    }
+
+    // Payload-dependent state: a diagnosis of the given size and its ciphertext. The text is random
+    // printable ASCII (about 6.6 bits per byte), so deflate, which the default payload scheme uses
+    // from 256 bytes up, only shrinks it by about a sixth and the numbers stay close to the
+    // pre-compression baseline; see PayloadSchemeBenchmark for realistic, compressible notes.
+    @State(Scope.Benchmark)
+    public static class Payload {
+
+        @Param({"64", "1024", "16384", "262144"})
+        public int payloadBytes;
+
+        String data;
+        CryptographyService.EncryptedRecord encrypted;
+        CryptographyService.EncryptedRecord reEncrypted;
+
+        @Setup(Level.Trial)
+        public void setup(CryptographyServiceBenchmark bench) throws Exception {
+            Random random = new Random(42);
+            char[] chars = new char[payloadBytes];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) ('!' + random.nextInt(94));
+            }
+            data = new String(chars);
+            encrypted = bench.cryptoService.encryptData(data, null, bench.patientKeys.getPublic());
+            reEncrypted = bench.cryptoService.reEncrypt(encrypted, bench.rk);
+        }
+    }
+
+    @Benchmark
+    public KeyPair generateKeyPair() throws Exception {
+        return cryptoService.generateKeyPair();
+    }
+
+    @Benchmark
+    public CryptographyService.EncryptedRecord encryptData(Payload payload) throws Exception {
+        return cryptoService.encryptData(payload.data, null, patientKeys.getPublic());
+    }
+
+    @Benchmark
+    public String decryptData(Payload payload) throws Exception {
+        return cryptoService.decryptData(payload.encrypted, patientKeys.getPrivate());
+    }
+
+    @Benchmark
+    public String decryptReEncrypted(Payload payload) throws Exception {
+        return cryptoService.decryptData(payload.reEncrypted, doctorKeys.getPrivate());
+    }
+
+    @Benchmark
+    public BigInteger generateReEncryptionKey() {
+        return cryptoService.generateReEncryptionKey(patientKeys.getPrivate(), doctorKeys.getPrivate());
+    }
+
+    @Benchmark
+    public CryptographyService.EncryptedRecord reEncrypt(Payload payload) {
+        return cryptoService.reEncrypt(payload.encrypted, rk);
+    }
+}
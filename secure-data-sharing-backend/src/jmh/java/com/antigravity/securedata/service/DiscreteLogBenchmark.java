@@ -0,0 +1,72 @@
+package com.antigravity.securedata.service;
+
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.math.ec.ECPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar recovery cost: the old linear scan from decryptData vs DiscreteLogSolver.
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=DiscreteLogBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiscreteLogBenchmark {
+
+    private static final int TARGETS = 64;
+
+    @Param({"100000", "1000000", "10000000"})
+    public int maxS;
+
+    private ECPoint G;
+    private DiscreteLogSolver solver;
+    private ECPoint[] targets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        G = ECNamedCurveTable.getParameterSpec("secp256k1").getG();
+        solver = new DiscreteLogSolver(G, maxS);
+
+        Random random = new Random(42);
+        targets = new ECPoint[TARGETS];
+        for (int i = 0; i < TARGETS; i++) {
+            targets[i] = G.multiply(BigInteger.valueOf(random.nextInt(maxS)));
+        }
+    }
+
+    private ECPoint nextTarget() {
+        next = (next + 1) % TARGETS;
+        return targets[next];
+    }
+
+    @Benchmark
+    public int linearScan() {
+        ECPoint sG = nextTarget();
+        ECPoint temp = G.getCurve().getInfinity();
+        for (int i = 0; i < maxS; i++) {
+            if (temp.equals(sG)) {
+                return i;
+            }
+            temp = temp.add(G);
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int babyStepGiantStep() {
+        return solver.solve(nextTarget());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DiscreteLogSolver buildTable() {
+        return new DiscreteLogSolver(G, maxS);
+    }
+}
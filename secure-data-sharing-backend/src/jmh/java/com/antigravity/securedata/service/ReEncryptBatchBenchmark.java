@@ -0,0 +1,62 @@
+package com.antigravity.securedata.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of re-encrypting RECORDS ciphertexts with one rk, one at a time
+ * (reEncrypt) versus in batches of batchSize (reEncryptAll, one shared normalization
+ * per batch). Scores are per record, so they are comparable across batch sizes.
+ *
+ * Run with: ./gradlew jmh -Pjmh.includes=ReEncryptBatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReEncryptBatchBenchmark {
+
+    private static final int RECORDS = 512;
+
+    @Param({"1", "8", "64", "512"})
+    public int batchSize;
+
+    private CryptographyService cryptoService;
+    private BigInteger rk;
+    private List<CryptographyService.EncryptedRecord> records;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        cryptoService = new CryptographyService();
+        cryptoService.init();
+        KeyPair patientKeys = cryptoService.generateKeyPair();
+        KeyPair doctorKeys = cryptoService.generateKeyPair();
+        rk = cryptoService.generateReEncryptionKey(patientKeys.getPrivate(), doctorKeys.getPrivate());
+
+        records = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            records.add(cryptoService.encryptData("diagnosis " + i, null, patientKeys.getPublic()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void reEncryptEach(Blackhole bh) {
+        for (CryptographyService.EncryptedRecord record : records) {
+            bh.consume(cryptoService.reEncrypt(record, rk));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void reEncryptAll(Blackhole bh) {
+        for (int from = 0; from < RECORDS; from += batchSize) {
+            bh.consume(cryptoService.reEncryptAll(records.subList(from, Math.min(from + batchSize, RECORDS)), rk));
+        }
+    }
+}
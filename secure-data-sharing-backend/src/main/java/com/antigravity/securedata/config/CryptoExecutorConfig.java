@@ -0,0 +1,28 @@
+package com.antigravity.securedata.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class CryptoExecutorConfig {
+
+    // Bounded pool for CPU-bound crypto fan-out (batch re-encryption, bulk decrypt).
+    // Defaults to one thread per core; more threads would only contend for the same CPUs.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService cryptoExecutor(@Value("${crypto.executor.threads:0}") int threads) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "crypto-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(size, factory);
+    }
+}
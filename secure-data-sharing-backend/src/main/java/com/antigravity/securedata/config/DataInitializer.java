@@ -3,6 +3,7 @@ package com.antigravity.securedata.config;
 import com.antigravity.securedata.model.User;
 import com.antigravity.securedata.repository.UserRepository;
 import com.antigravity.securedata.service.CryptographyService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,9 +13,27 @@ import java.security.KeyPair;
 @Configuration
 public class DataInitializer {
 
+    // Seed in the background (the "startup" profile) so the demo users' key generation
+    // does not delay the application from accepting requests
+    @Value("${app.seed-async:false}")
+    private boolean seedAsync;
+
     @Bean
     CommandLineRunner init(UserRepository userRepository, CryptographyService cryptoService) {
         return args -> {
+            Runnable seed = () -> seed(userRepository, cryptoService);
+            if (seedAsync) {
+                Thread seeder = new Thread(seed, "data-seed");
+                seeder.setDaemon(true);
+                seeder.start();
+            } else {
+                seed.run();
+            }
+        };
+    }
+
+    private void seed(UserRepository userRepository, CryptographyService cryptoService) {
+        try {
             if (userRepository.count() == 0) {
                 // Create Patient
                 KeyPair patientKeys = cryptoService.generateKeyPair();
@@ -46,6 +65,8 @@ public class DataInitializer {
                 userRepository.save(docB);
                 System.out.println("Created Doctor B: " + docB.getId());
             }
-        };
+        } catch (Exception e) {
+            throw new RuntimeException("Could not seed demo users", e);
+        }
     }
 }
@@ -0,0 +1,86 @@
+package com.antigravity.securedata.config;
+
+import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.model.SharedRecord;
+import com.antigravity.securedata.repository.MedicalRecordRepository;
+import com.antigravity.securedata.repository.SharedRecordRepository;
+import com.antigravity.securedata.service.CiphertextStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Moves records from the legacy JSON ciphertext column to the binary envelope column.
+ *
+ * The schema side (nullable legacy columns) is in Flyway migration V2. Converting the
+ * existing rows is opt-in (crypto.envelope.migrate-legacy=true): reads handle both
+ * formats, so it can run whenever convenient. Rows are converted in batches of 500, one transaction each.
+ * Shares holding a full copy of the ciphertext are reduced to their transformed C2.
+ */
+@Component
+public class LegacyCiphertextMigration implements ApplicationRunner {
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private SharedRecordRepository sharedRecordRepository;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Value("${crypto.envelope.migrate-legacy:false}")
+    private boolean migrateLegacy;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!migrateLegacy) {
+            return;
+        }
+
+        int records = 0;
+        int converted;
+        do {
+            converted = transactionTemplate.execute(status -> {
+                List<MedicalRecord> batch = medicalRecordRepository.findTop500ByEncryptedDataIsNotNull();
+                for (MedicalRecord record : batch) {
+                    try {
+                        ciphertextStore.write(record, ciphertextStore.read(record));
+                    } catch (Exception e) {
+                        throw new RuntimeException("Could not convert record " + record.getId(), e);
+                    }
+                }
+                medicalRecordRepository.saveAll(batch);
+                return batch.size();
+            });
+            records += converted;
+        } while (converted > 0);
+
+        int shares = 0;
+        do {
+            converted = transactionTemplate.execute(status -> {
+                List<SharedRecord> batch = sharedRecordRepository.findTop500ByReEncryptedDataIsNotNullOrReEncryptedEnvelopeIsNotNull();
+                for (SharedRecord shared : batch) {
+                    try {
+                        ciphertextStore.write(shared, ciphertextStore.read(shared));
+                    } catch (Exception e) {
+                        throw new RuntimeException("Could not convert shared record " + shared.getId(), e);
+                    }
+                }
+                sharedRecordRepository.saveAll(batch);
+                return batch.size();
+            });
+            shares += converted;
+        } while (converted > 0);
+
+        System.out.println("Converted " + records + " records to binary envelopes and " + shares + " shared records to C2-only shares.");
+    }
+}
@@ -0,0 +1,20 @@
+package com.antigravity.securedata.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables @Timed on Spring beans (CryptographyService). Endpoint latency
+ * (http.server.requests) and repository latency (spring.data.repository.invocations)
+ * are recorded by Spring Boot itself; all of it is scraped from /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,10 @@
+package com.antigravity.securedata.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background pollers (ShareJobService)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
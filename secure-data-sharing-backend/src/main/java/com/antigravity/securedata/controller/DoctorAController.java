@@ -1,21 +1,26 @@
 package com.antigravity.securedata.controller;
 
 import com.antigravity.securedata.dto.CreateRecordRequest;
+import com.antigravity.securedata.dto.RecordImportResult;
 import com.antigravity.securedata.model.MedicalRecord;
 import com.antigravity.securedata.model.User;
 import com.antigravity.securedata.repository.MedicalRecordRepository;
 import com.antigravity.securedata.repository.UserRepository;
+import com.antigravity.securedata.service.CiphertextStore;
+import com.antigravity.securedata.service.CryptoTasks;
 import com.antigravity.securedata.service.CryptographyService;
+import com.antigravity.securedata.service.PublicKeyCache;
+import com.antigravity.securedata.service.RecordExportService;
+import com.antigravity.securedata.service.RecordImportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import java.security.KeyFactory;
-import java.security.PrivateKey;
-import java.security.PublicKey;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
-import java.util.Base64;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.io.InputStream;
 import java.util.UUID;
 
 @RestController
@@ -33,7 +38,19 @@ public class DoctorAController {
     private CryptographyService cryptoService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private CryptoTasks cryptoTasks;
+
+    @Autowired
+    private PublicKeyCache publicKeyCache;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private RecordImportService recordImportService;
+
+    @Autowired
+    private RecordExportService recordExportService;
 
     @PostMapping("/create-record")
     public MedicalRecord createRecord(@RequestBody CreateRecordRequest request) throws Exception {
@@ -44,40 +61,44 @@ public class DoctorAController {
 
         // encryption logic:
         // Doctor encrypts data using Patient's Public Key.
-        // We need to decode Patient's Public Key.
-        byte[] pubKeyBytes = Base64.getDecoder().decode(patient.getPublicKey());
-        KeyFactory kf = KeyFactory.getInstance("EC", "BC");
-        PublicKey patientPubKey = kf.generatePublic(new X509EncodedKeySpec(pubKeyBytes));
-        
-        // Doctor needs their own Private Key to sign? No, encryption doesn't require sender PrivKey unless Authenticated Encryption.
-        // Our 'encryptData' method signature demands senderPriv.
-        // Wait, why? -> encryptData(data, senderPriv, receiverPub) ? 
-        // Ah, typically ECIES doesn't need Sender Priv.
-        // But our 'encryptData' method uses 'new KeyPair()' internally? No.
-        // Let's check 'encryptData' signature in CryptoService.
-        // It asks for `PrivateKey senderPriv`. 
-        // Why? -> C1 = rG. C2 = ... logic doesn't use sender Priv.
-        // NOTE: I implemented it as taking `senderPriv` but inside it logic:
-        // `ECPoint C2 = sG.add(Q.multiply(r));`
-        // It DOES NOT use senderPriv. It was a leftover in signature.
-        // I will pass null or dummy.
+        // The decoded key point (and its multiplication table) is cached per patient.
+        ECPoint patientQ = publicKeyCache.get(patient);
         
         // Encrypt the diagnosis
-        CryptographyService.EncryptedRecord encRecord = cryptoService.encryptData(
-                request.getDiagnosis(), 
-                null, // Sender priv key not used in standard ElGamal encryption part
-                patientPubKey
-        );
+        CryptographyService.EncryptedRecord encRecord = cryptoTasks.run(() -> cryptoService.encryptData(request.getDiagnosis(), patientQ));
         
-        // Serialize EncryptedRecord to JSON string for storage
-        String encryptedJson = objectMapper.writeValueAsString(encRecord);
-
         MedicalRecord record = new MedicalRecord();
         record.setDoctorA(doctor);
         record.setPatient(patient);
-        record.setEncryptedData(encryptedJson);
+        // Stored as a binary envelope (bytea)
+        ciphertextStore.write(record, encRecord);
         record.setDescription("Diagnosis by " + doctor.getName());
 
         return medicalRecordRepository.save(record);
     }
+
+    // Bulk import, one record per line: NDJSON (patientId, diagnosis) or CSV (patientId,diagnosis).
+    // The body is streamed, never held in memory; the result reports per-line failures.
+    @PostMapping(value = "/{doctorId}/records/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public RecordImportResult importRecords(@PathVariable("doctorId") String doctorId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws Exception {
+        User doctor = userRepository.findById(UUID.fromString(doctorId))
+                .orElseThrow(() -> new RuntimeException("Doctor not found"));
+
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.valueOf("text/csv"));
+        return recordImportService.importRecords(doctor, body, csv);
+    }
+
+    // Every record this doctor created, as NDJSON ciphertext envelopes (see PatientController export)
+    @GetMapping(value = "/{doctorId}/records/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRecords(@PathVariable("doctorId") String doctorId) {
+        UUID id = UUID.fromString(doctorId);
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("Doctor not found");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(recordExportService.exportByDoctorA(id));
+    }
 }
@@ -1,31 +1,53 @@
 package com.antigravity.securedata.controller;
 
-import java.security.KeyFactory;
-import java.security.PrivateKey;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.util.Base64;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.antigravity.securedata.dto.BulkDecryptRequest;
+import com.antigravity.securedata.dto.PageCursor;
+import com.antigravity.securedata.dto.RecordPage;
+import com.antigravity.securedata.dto.RecordResponse;
+import com.antigravity.securedata.model.MedicalRecord;
 import com.antigravity.securedata.model.SharedRecord;
 import com.antigravity.securedata.model.User;
+import com.antigravity.securedata.repository.MedicalRecordRepository;
 import com.antigravity.securedata.repository.SharedRecordRepository;
 import com.antigravity.securedata.repository.UserRepository;
+import com.antigravity.securedata.service.BulkDecryptService;
+import com.antigravity.securedata.service.CiphertextEnvelope;
+import com.antigravity.securedata.service.CiphertextStore;
+import com.antigravity.securedata.service.CryptoTasks;
 import com.antigravity.securedata.service.CryptographyService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.antigravity.securedata.service.PrivateKeyCache;
+import com.antigravity.securedata.service.ShareGrantService;
 
 @RestController
 @RequestMapping("/doctorB")
 @CrossOrigin(origins = "*")
 public class DoctorBController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -36,13 +58,56 @@ public class DoctorBController {
     private CryptographyService cryptoService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private CryptoTasks cryptoTasks;
+
+    @Autowired
+    private PrivateKeyCache privateKeyCache;
+
+    @Autowired
+    private BulkDecryptService bulkDecryptService;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private ShareGrantService shareGrantService;
 
     @GetMapping("/{doctorId}/shared-records")
 	public List<SharedRecord> getSharedRecords(@PathVariable("doctorId") String doctorId) {
         User doctorB = userRepository.findById(UUID.fromString(doctorId))
                 .orElseThrow(() -> new RuntimeException("Doctor B not found"));
-        return sharedRecordRepository.findByDoctorB(doctorB);
+        return sharedRecordRepository.findByDoctorBOrderBySharedAtDesc(doctorB);
+    }
+
+    // Paged listing, newest share first. Pass the returned nextCursor to get the following page.
+    @GetMapping("/{doctorId}/shared-records/page")
+    public RecordPage getSharedRecordPage(@PathVariable("doctorId") String doctorId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) throws Exception {
+        UUID id = UUID.fromString(doctorId);
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("Doctor B not found");
+        }
+
+        int pageSize = pageSize(size);
+        List<SharedRecordRepository.SharePageRow> shares;
+        if (cursor == null || cursor.isEmpty()) {
+            shares = sharedRecordRepository.findPageByDoctorB(id, PageRequest.of(0, pageSize));
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            shares = sharedRecordRepository.findPageByDoctorBAfter(id, after.getTimestamp(), after.getId(), PageRequest.of(0, pageSize));
+        }
+
+        // encryptedData is always a complete envelope for Doctor B, whichever way the share is stored
+        List<RecordResponse> items = new ArrayList<>(shares.size());
+        for (SharedRecordRepository.SharePageRow row : shares) {
+            items.add(new RecordResponse(row.getId(), row.getPatientName(), row.getDoctorName(),
+                    CiphertextEnvelope.encode(ciphertextStore.read(row)), null, row.getSharedAt()));
+        }
+        return new RecordPage(items, PageCursor.next(items, pageSize));
     }
 
     @GetMapping("/{doctorId}/shared-records/{sharedId}/decrypt")
@@ -51,13 +116,73 @@ public class DoctorBController {
         User doctorB = userRepository.findById(UUID.fromString(doctorId)).orElseThrow();
         SharedRecord shared = sharedRecordRepository.findById(UUID.fromString(sharedId)).orElseThrow();
         
-        byte[] privKeyBytes = Base64.getDecoder().decode(doctorB.getPrivateKey());
-        KeyFactory kf = KeyFactory.getInstance("EC", "BC");
-        PrivateKey docBPrivKey = kf.generatePrivate(new PKCS8EncodedKeySpec(privKeyBytes));
+        BigInteger docBD = privateKeyCache.get(doctorB);
         
-        CryptographyService.EncryptedRecord reEncRecord = objectMapper.readValue(shared.getReEncryptedData(), CryptographyService.EncryptedRecord.class);
+        CryptographyService.EncryptedRecord reEncRecord = ciphertextStore.read(shared);
         
         // Decrypt using Doctor B's Key (which works because Proxy transformed it to be encryptable by B)
-        return cryptoService.decryptData(reEncRecord, docBPrivKey);
+        return cryptoTasks.run(() -> cryptoService.decryptData(reEncRecord, docBD));
+    }
+
+    // Decrypt many shared records (or all of them) in parallel, streamed back as NDJSON
+    @PostMapping(value = "/{doctorId}/shared-records/decrypt", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> decryptSharedRecords(@PathVariable("doctorId") String doctorId,
+            @RequestBody BulkDecryptRequest request) throws Exception {
+        User doctorB = userRepository.findById(UUID.fromString(doctorId))
+                .orElseThrow(() -> new RuntimeException("Doctor B not found"));
+
+        List<String> requestedIds = request.getRecordIds() == null ? List.of() : request.getRecordIds();
+        List<SharedRecord> shares = request.isAll()
+                ? sharedRecordRepository.findByDoctorBOrderBySharedAtDesc(doctorB)
+                : sharedRecordRepository.findAllById(requestedIds.stream().map(UUID::fromString).collect(Collectors.toList()));
+
+        Map<String, CryptographyService.EncryptedRecord> ciphertexts = new LinkedHashMap<>();
+        for (SharedRecord shared : shares) {
+            if (shared.getDoctorB().getId().equals(doctorB.getId())) {
+                ciphertexts.put(shared.getId().toString(), ciphertextStore.read(shared));
+            }
+        }
+        Map<String, String> failures = new LinkedHashMap<>();
+        if (!request.isAll()) {
+            for (String id : requestedIds) {
+                String key = UUID.fromString(id).toString();
+                if (!ciphertexts.containsKey(key)) {
+                    failures.put(key, "Shared record not found");
+                }
+            }
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bulkDecryptService.decryptAll(ciphertexts, failures, privateKeyCache.get(doctorB)));
+    }
+
+    // Records of every patient who has granted this doctor access
+    @GetMapping("/{doctorId}/granted-records")
+    public List<MedicalRecord> getGrantedRecords(@PathVariable("doctorId") String doctorId) {
+        User doctorB = userRepository.findById(UUID.fromString(doctorId))
+                .orElseThrow(() -> new RuntimeException("Doctor B not found"));
+        return medicalRecordRepository.findGrantedTo(doctorB);
+    }
+
+    @GetMapping("/{doctorId}/granted-records/{recordId}/decrypt")
+    public String decryptGrantedRecord(@PathVariable("doctorId") String doctorId,
+            @PathVariable("recordId") String recordId) throws Exception {
+        User doctorB = userRepository.findById(UUID.fromString(doctorId))
+                .orElseThrow(() -> new RuntimeException("Doctor B not found"));
+        MedicalRecord record = medicalRecordRepository.findById(UUID.fromString(recordId))
+                .orElseThrow(() -> new RuntimeException("Record not found"));
+
+        BigInteger docBD = privateKeyCache.get(doctorB);
+
+        // Proxy transform happens here, at read time, using the patient's stored grant
+        return cryptoTasks.run(() -> cryptoService.decryptData(shareGrantService.transformFor(record, doctorB), docBD));
+    }
+
+    private static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 }
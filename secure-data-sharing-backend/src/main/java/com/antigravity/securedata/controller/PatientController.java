@@ -1,37 +1,62 @@
 package com.antigravity.securedata.controller;
 
 import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.PrivateKey;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.antigravity.securedata.dto.BatchShareRequest;
+import com.antigravity.securedata.dto.BulkDecryptRequest;
+import com.antigravity.securedata.dto.GrantAccessRequest;
+import com.antigravity.securedata.dto.PageCursor;
+import com.antigravity.securedata.dto.RecordPage;
+import com.antigravity.securedata.dto.RecordResponse;
 import com.antigravity.securedata.dto.ShareRecordRequest;
 import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.model.ShareGrant;
+import com.antigravity.securedata.model.ShareJob;
 import com.antigravity.securedata.model.SharedRecord;
 import com.antigravity.securedata.model.User;
 import com.antigravity.securedata.repository.MedicalRecordRepository;
-import com.antigravity.securedata.repository.SharedRecordRepository;
+import com.antigravity.securedata.repository.ShareGrantRepository;
+import com.antigravity.securedata.repository.ShareJobRepository;
 import com.antigravity.securedata.repository.UserRepository;
+import com.antigravity.securedata.service.BulkDecryptService;
+import com.antigravity.securedata.service.CiphertextStore;
+import com.antigravity.securedata.service.CryptoTasks;
 import com.antigravity.securedata.service.CryptographyService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.antigravity.securedata.service.PrivateKeyCache;
+import com.antigravity.securedata.service.RecordExportService;
+import com.antigravity.securedata.service.RecordSharingService;
+import com.antigravity.securedata.service.ShareGrantService;
+import com.antigravity.securedata.service.ShareJobService;
 
 @RestController
 @RequestMapping("/patient")
 @CrossOrigin(origins = "*")
 public class PatientController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -39,20 +64,78 @@ public class PatientController {
     private MedicalRecordRepository medicalRecordRepository;
 
     @Autowired
-    private SharedRecordRepository sharedRecordRepository;
+    private CryptographyService cryptoService;
 
     @Autowired
-    private CryptographyService cryptoService;
+    private CryptoTasks cryptoTasks;
+
+    @Autowired
+    private PrivateKeyCache privateKeyCache;
+
+    @Autowired
+    private RecordSharingService recordSharingService;
+
+    @Autowired
+    private BulkDecryptService bulkDecryptService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private ShareGrantService shareGrantService;
+
+    @Autowired
+    private ShareGrantRepository shareGrantRepository;
+
+    @Autowired
+    private ShareJobService shareJobService;
+
+    @Autowired
+    private ShareJobRepository shareJobRepository;
+
+    @Autowired
+    private RecordExportService recordExportService;
 
     @GetMapping("/{patientId}/records")
     public List<MedicalRecord> getRecords(@PathVariable("patientId") String patientId) {
         System.out.println("Inside getRecords method.");
         User patient = userRepository.findById(UUID.fromString(patientId))
                 .orElseThrow(() -> new RuntimeException("Patient not found"));
-        return medicalRecordRepository.findByPatient(patient);
+        return medicalRecordRepository.findByPatientOrderByCreatedAtDesc(patient);
+    }
+
+    // Paged listing, newest first. Pass the returned nextCursor to get the following page.
+    @GetMapping("/{patientId}/records/page")
+    public RecordPage getRecordPage(@PathVariable("patientId") String patientId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        UUID id = UUID.fromString(patientId);
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("Patient not found");
+        }
+
+        int pageSize = pageSize(size);
+        List<RecordResponse> items;
+        if (cursor == null || cursor.isEmpty()) {
+            items = medicalRecordRepository.findPageByPatient(id, PageRequest.of(0, pageSize));
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            items = medicalRecordRepository.findPageByPatientAfter(id, after.getTimestamp(), after.getId(), PageRequest.of(0, pageSize));
+        }
+        return new RecordPage(items, PageCursor.next(items, pageSize));
+    }
+
+    // Export every record as NDJSON (ciphertext envelopes, nothing decrypted), oldest first.
+    // Streamed from a database cursor, so memory use is the same for ten records or ten million.
+    @GetMapping(value = "/{patientId}/records/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportRecords(@PathVariable("patientId") String patientId) {
+        UUID id = UUID.fromString(patientId);
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("Patient not found");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(recordExportService.exportByPatient(id));
     }
 
     // Decrypt record for Patient (Demo purpose: Patient sees own data)
@@ -63,15 +146,47 @@ public class PatientController {
         MedicalRecord record = medicalRecordRepository.findById(UUID.fromString(recordId)).orElseThrow();
 
         // Recover Patient Private Key (Simulated, in real app key is on client)
-        // We decode it from DB
-        byte[] privKeyBytes = Base64.getDecoder().decode(patient.getPrivateKey());
-        KeyFactory kf = KeyFactory.getInstance("EC", "BC");
-        PrivateKey patientPrivKey = kf.generatePrivate(new PKCS8EncodedKeySpec(privKeyBytes));
+        // We decode it from DB (once per TTL, see PrivateKeyCache)
+        BigInteger patientD = privateKeyCache.get(patient);
 
-        CryptographyService.EncryptedRecord encForPatient = objectMapper.readValue(record.getEncryptedData(),
-                CryptographyService.EncryptedRecord.class);
+        CryptographyService.EncryptedRecord encForPatient = ciphertextStore.read(record);
 
-        return cryptoService.decryptData(encForPatient, patientPrivKey);
+        return cryptoTasks.run(() -> cryptoService.decryptData(encForPatient, patientD));
+    }
+
+    // Decrypt many records (or all of them) in parallel.
+    // Results stream back as NDJSON, one line per record, in the order they finish.
+    @PostMapping(value = "/{patientId}/records/decrypt", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> decryptRecords(@PathVariable("patientId") String patientId,
+            @RequestBody BulkDecryptRequest request) throws Exception {
+        User patient = userRepository.findById(UUID.fromString(patientId))
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+
+        List<String> requestedIds = request.getRecordIds() == null ? List.of() : request.getRecordIds();
+        List<MedicalRecord> records = request.isAll()
+                ? medicalRecordRepository.findByPatientOrderByCreatedAtDesc(patient)
+                : medicalRecordRepository.findAllById(requestedIds.stream().map(UUID::fromString).collect(Collectors.toList()));
+
+        // Load and parse everything here; the streaming body runs after this thread returns
+        Map<String, CryptographyService.EncryptedRecord> ciphertexts = new LinkedHashMap<>();
+        for (MedicalRecord record : records) {
+            if (record.getPatient().getId().equals(patient.getId())) {
+                ciphertexts.put(record.getId().toString(), ciphertextStore.read(record));
+            }
+        }
+        Map<String, String> failures = new LinkedHashMap<>();
+        if (!request.isAll()) {
+            for (String id : requestedIds) {
+                String key = UUID.fromString(id).toString();
+                if (!ciphertexts.containsKey(key)) {
+                    failures.put(key, "Record not found");
+                }
+            }
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bulkDecryptService.decryptAll(ciphertexts, failures, privateKeyCache.get(patient)));
     }
 
     @PostMapping("/share")
@@ -79,51 +194,88 @@ public class PatientController {
         MedicalRecord originalRecord = medicalRecordRepository.findById(UUID.fromString(request.getRecordId()))
                 .orElseThrow(() -> new RuntimeException("Record not found"));
 
-        User patient = originalRecord.getPatient();
         User doctorB = userRepository.findById(UUID.fromString(request.getTargetDoctorId()))
                 .orElseThrow(() -> new RuntimeException("Doctor B not found"));
 
-        // --- Duplicate Share Check ---
-        if (sharedRecordRepository.existsByOriginalRecordAndDoctorB(originalRecord, doctorB)) {
-            throw new RuntimeException("This record has already been shared with this doctor.");
+        // --- Proxy Re-Encryption Logic ---
+        // rk = d_B - d_A transforms C2 for Doctor B (Simulated: Patient authorizes this).
+        // The share is written with one insert-on-conflict; the unique (record, doctor)
+        // constraint replaces the old exists-then-insert duplicate check.
+        return recordSharingService.share(originalRecord, doctorB);
+    }
+
+    // Share many records with many specialists in one call (e.g. a referral of the whole history)
+    @PostMapping("/share/batch")
+    public List<SharedRecord> shareRecords(@RequestBody BatchShareRequest request) throws Exception {
+        if (request.getRecordIds() == null || request.getRecordIds().isEmpty()) {
+            throw new RuntimeException("At least one record is required.");
+        }
+        if (request.getTargetDoctorIds() == null || request.getTargetDoctorIds().isEmpty()) {
+            throw new RuntimeException("At least one target doctor is required.");
         }
 
-        // --- Proxy Re-Encryption Logic ---
-        // 1. Generate Re-Encryption Key (Simulated: Patient authorizes this)
-        // We need Patient Priv Key and Doctor B Priv Key? NO.
-        // The Service method 'generateReEncryptionKey' needs PrivateKeys of both for
-        // the math: d_B - d_A.
-        // Wait, 'generateReEncryptionKey' implementation: return dB.subtract(dA).
-        // This means we need BOTH private keys loaded in memory.
-        // In this demo, since we store encrypted private keys (or simulated keys), we
-        // load them.
-
-        byte[] patientPrivBytes = Base64.getDecoder().decode(patient.getPrivateKey());
-        byte[] docBPrivBytes = Base64.getDecoder().decode(doctorB.getPrivateKey());
-
-        KeyFactory kf = KeyFactory.getInstance("EC", "BC");
-        PrivateKey patientPrivKey = kf.generatePrivate(new PKCS8EncodedKeySpec(patientPrivBytes));
-        PrivateKey docBPrivKey = kf.generatePrivate(new PKCS8EncodedKeySpec(docBPrivBytes));
-
-        // Generate Token
-        BigInteger rk = cryptoService.generateReEncryptionKey(patientPrivKey, docBPrivKey);
-
-        // 2. Perform Transformation (Proxy Action)
-        // Load original ciphertext
-        CryptographyService.EncryptedRecord encRecord = objectMapper.readValue(originalRecord.getEncryptedData(),
-                CryptographyService.EncryptedRecord.class);
-
-        // Transform
-        CryptographyService.EncryptedRecord reEncRecord = cryptoService.reEncrypt(encRecord, rk);
-
-        // Save Shared Record
-        String reEncJson = objectMapper.writeValueAsString(reEncRecord);
-
-        SharedRecord shared = new SharedRecord();
-        shared.setOriginalRecord(originalRecord);
-        shared.setDoctorB(doctorB);
-        shared.setReEncryptedData(reEncJson);
-
-        return sharedRecordRepository.save(shared);
+        List<UUID> recordIds = request.getRecordIds().stream().map(UUID::fromString).collect(Collectors.toList());
+        List<UUID> doctorIds = request.getTargetDoctorIds().stream().map(UUID::fromString).collect(Collectors.toList());
+
+        return recordSharingService.shareAll(recordIds, doctorIds);
+    }
+
+    // Same as /share/batch, but queued: returns 202 with the job right away.
+    // Poll GET /patient/share/jobs/{jobId} for its status.
+    @PostMapping("/share/jobs")
+    public ResponseEntity<ShareJob> submitShareJob(@RequestBody BatchShareRequest request) {
+        if (request.getRecordIds() == null || request.getRecordIds().isEmpty()) {
+            throw new RuntimeException("At least one record is required.");
+        }
+        if (request.getTargetDoctorIds() == null || request.getTargetDoctorIds().isEmpty()) {
+            throw new RuntimeException("At least one target doctor is required.");
+        }
+
+        List<UUID> recordIds = request.getRecordIds().stream().map(UUID::fromString).distinct().collect(Collectors.toList());
+        List<UUID> doctorIds = request.getTargetDoctorIds().stream().map(UUID::fromString).distinct().collect(Collectors.toList());
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(shareJobService.submit(recordIds, doctorIds));
+    }
+
+    @GetMapping("/share/jobs/{jobId}")
+    public ShareJob getShareJob(@PathVariable("jobId") String jobId) {
+        return shareJobRepository.findById(UUID.fromString(jobId))
+                .orElseThrow(() -> new RuntimeException("Share job not found"));
+    }
+
+    // Grant Doctor B access to the patient's whole history (current and future records).
+    // One row holding the re-encryption key; nothing is re-encrypted until Doctor B reads.
+    @PostMapping("/grants")
+    public ShareGrant grantAccess(@RequestBody GrantAccessRequest request) throws Exception {
+        User patient = userRepository.findById(UUID.fromString(request.getPatientId()))
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+        User doctorB = userRepository.findById(UUID.fromString(request.getTargetDoctorId()))
+                .orElseThrow(() -> new RuntimeException("Doctor B not found"));
+
+        return shareGrantService.grant(patient, doctorB);
+    }
+
+    @GetMapping("/{patientId}/grants")
+    public List<ShareGrant> getGrants(@PathVariable("patientId") String patientId) {
+        User patient = userRepository.findById(UUID.fromString(patientId))
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+        return shareGrantRepository.findByPatient(patient);
+    }
+
+    @DeleteMapping("/{patientId}/grants/{doctorId}")
+    public void revokeAccess(@PathVariable("patientId") String patientId, @PathVariable("doctorId") String doctorId) {
+        User patient = userRepository.findById(UUID.fromString(patientId))
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+        User doctorB = userRepository.findById(UUID.fromString(doctorId))
+                .orElseThrow(() -> new RuntimeException("Doctor B not found"));
+
+        shareGrantService.revoke(patient, doctorB);
+    }
+
+    private static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 }
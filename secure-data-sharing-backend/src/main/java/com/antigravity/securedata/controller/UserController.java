@@ -1,14 +1,24 @@
 package com.antigravity.securedata.controller;
 
 import com.antigravity.securedata.dto.CreateUserRequest;
+import com.antigravity.securedata.model.KeyRotationJob;
 import com.antigravity.securedata.model.User;
+import com.antigravity.securedata.repository.KeyRotationJobRepository;
 import com.antigravity.securedata.repository.UserRepository;
+import com.antigravity.securedata.service.CryptoTasks;
 import com.antigravity.securedata.service.CryptographyService;
+import com.antigravity.securedata.service.KeyPairPool;
+import com.antigravity.securedata.service.KeyRotationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.KeyPair;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/users")
@@ -21,6 +31,21 @@ public class UserController {
     @Autowired
     private CryptographyService cryptoService;
 
+    @Autowired
+    private CryptoTasks cryptoTasks;
+
+    @Autowired
+    private KeyPairPool keyPairPool;
+
+    @Autowired
+    private KeyRotationService keyRotationService;
+
+    @Autowired
+    private KeyRotationJobRepository keyRotationJobRepository;
+
+    @Value("${users.batch.max-size:1000}")
+    private int maxBatchSize;
+
     @GetMapping
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -28,6 +53,41 @@ public class UserController {
 
     @PostMapping
     public User createUser(@RequestBody CreateUserRequest request) throws Exception {
+        User.Role role = validate(request);
+
+        // ECC key pair for the new user, normally already generated by the pool
+        KeyPair keyPair = cryptoTasks.run(keyPairPool::take);
+
+        return userRepository.save(newUser(request, role, keyPair));
+    }
+
+    // Bulk onboarding (e.g. a hospital's patient roster): every request is validated before any
+    // key is generated, key pairs beyond what the pool holds are generated in parallel, and all
+    // users are inserted through one JDBC-batched saveAll
+    @PostMapping("/batch")
+    public List<User> createUsers(@RequestBody List<CreateUserRequest> requests) throws Exception {
+        if (requests == null || requests.isEmpty()) {
+            throw new RuntimeException("At least one user is required.");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new RuntimeException("At most " + maxBatchSize + " users can be created at once.");
+        }
+
+        List<User.Role> roles = new ArrayList<>(requests.size());
+        for (CreateUserRequest request : requests) {
+            roles.add(validate(request));
+        }
+
+        // Not through cryptoTasks: take(count) fans out over cryptoExecutor itself
+        List<KeyPair> keyPairs = keyPairPool.take(requests.size());
+        List<User> users = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            users.add(newUser(requests.get(i), roles.get(i), keyPairs.get(i)));
+        }
+        return userRepository.saveAll(users);
+    }
+
+    private User.Role validate(CreateUserRequest request) {
         if (request.getName() == null || request.getName().trim().isEmpty()) {
             throw new RuntimeException("User name is required.");
         }
@@ -35,22 +95,34 @@ public class UserController {
             throw new RuntimeException("User role is required.");
         }
 
-        User.Role role;
         try {
-            role = User.Role.valueOf(request.getRole().toUpperCase());
+            return User.Role.valueOf(request.getRole().toUpperCase());
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("Invalid role. Must be PATIENT, DOCTOR_A, or DOCTOR_B.");
         }
+    }
 
-        // Generate ECC key pair for the new user
-        KeyPair keyPair = cryptoService.generateKeyPair();
-
+    private User newUser(CreateUserRequest request, User.Role role, KeyPair keyPair) {
         User user = new User();
         user.setName(request.getName().trim());
         user.setRole(role);
         user.setPublicKey(cryptoService.encodePublicKey(keyPair.getPublic()));
         user.setPrivateKey(cryptoService.encodePrivateKey(keyPair.getPrivate()));
+        return user;
+    }
+
+    // Swap in a new key pair for a patient; existing records are re-keyed in the background.
+    // Poll GET /users/key-rotations/{jobId} for progress.
+    @PostMapping("/{userId}/rotate-key")
+    public ResponseEntity<KeyRotationJob> rotateKey(@PathVariable("userId") String userId) throws Exception {
+        User user = userRepository.findById(UUID.fromString(userId))
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(keyRotationService.start(user));
+    }
 
-        return userRepository.save(user);
+    @GetMapping("/key-rotations/{jobId}")
+    public KeyRotationJob getKeyRotation(@PathVariable("jobId") String jobId) {
+        return keyRotationJobRepository.findById(UUID.fromString(jobId))
+                .orElseThrow(() -> new RuntimeException("Key rotation job not found"));
     }
 }
@@ -0,0 +1,13 @@
+package com.antigravity.securedata.dto;
+
+import java.util.List;
+
+public class BatchShareRequest {
+    private List<String> recordIds;
+    private List<String> targetDoctorIds;
+
+    public List<String> getRecordIds() { return recordIds; }
+    public void setRecordIds(List<String> recordIds) { this.recordIds = recordIds; }
+    public List<String> getTargetDoctorIds() { return targetDoctorIds; }
+    public void setTargetDoctorIds(List<String> targetDoctorIds) { this.targetDoctorIds = targetDoctorIds; }
+}
@@ -0,0 +1,13 @@
+package com.antigravity.securedata.dto;
+
+import java.util.List;
+
+public class BulkDecryptRequest {
+    private List<String> recordIds;
+    private boolean all; // true = every record visible to the caller, recordIds is ignored
+
+    public List<String> getRecordIds() { return recordIds; }
+    public void setRecordIds(List<String> recordIds) { this.recordIds = recordIds; }
+    public boolean isAll() { return all; }
+    public void setAll(boolean all) { this.all = all; }
+}
@@ -0,0 +1,22 @@
+package com.antigravity.securedata.dto;
+
+public class DecryptedRecordResponse {
+    private String id;
+    private String data;
+    private String error;
+
+    public DecryptedRecordResponse() {}
+
+    public DecryptedRecordResponse(String id, String data, String error) {
+        this.id = id;
+        this.data = data;
+        this.error = error;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getData() { return data; }
+    public void setData(String data) { this.data = data; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,11 @@
+package com.antigravity.securedata.dto;
+
+public class GrantAccessRequest {
+    private String patientId;
+    private String targetDoctorId;
+
+    public String getPatientId() { return patientId; }
+    public void setPatientId(String patientId) { this.patientId = patientId; }
+    public String getTargetDoctorId() { return targetDoctorId; }
+    public void setTargetDoctorId(String targetDoctorId) { this.targetDoctorId = targetDoctorId; }
+}
@@ -0,0 +1,45 @@
+package com.antigravity.securedata.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+// Keyset position (timestamp, id) of the last row on a page, passed back by the client as an opaque string
+public class PageCursor {
+    private final LocalDateTime timestamp;
+    private final UUID id;
+
+    public PageCursor(LocalDateTime timestamp, UUID id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public UUID getId() { return id; }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid page cursor");
+        }
+    }
+
+    // Cursor for the page after this one, or null if it came back short (no more rows)
+    public static String next(List<RecordResponse> items, int pageSize) {
+        if (items.size() < pageSize) {
+            return null;
+        }
+        RecordResponse last = items.get(items.size() - 1);
+        return new PageCursor(LocalDateTime.parse(last.getTimestamp()), UUID.fromString(last.getId())).encode();
+    }
+}
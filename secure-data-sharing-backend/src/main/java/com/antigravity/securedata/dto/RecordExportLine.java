@@ -0,0 +1,39 @@
+package com.antigravity.securedata.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// One line of a record export: the record's metadata and its ciphertext envelope (Base64 in JSON)
+public class RecordExportLine {
+    private UUID id;
+    private UUID patientId;
+    private UUID doctorAId;
+    private String description;
+    private LocalDateTime createdAt;
+    private byte[] envelope;
+
+    public RecordExportLine() {}
+
+    public RecordExportLine(UUID id, UUID patientId, UUID doctorAId, String description,
+                            LocalDateTime createdAt, byte[] envelope) {
+        this.id = id;
+        this.patientId = patientId;
+        this.doctorAId = doctorAId;
+        this.description = description;
+        this.createdAt = createdAt;
+        this.envelope = envelope;
+    }
+
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+    public UUID getPatientId() { return patientId; }
+    public void setPatientId(UUID patientId) { this.patientId = patientId; }
+    public UUID getDoctorAId() { return doctorAId; }
+    public void setDoctorAId(UUID doctorAId) { this.doctorAId = doctorAId; }
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public byte[] getEnvelope() { return envelope; }
+    public void setEnvelope(byte[] envelope) { this.envelope = envelope; }
+}
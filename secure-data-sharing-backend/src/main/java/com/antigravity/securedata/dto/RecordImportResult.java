@@ -0,0 +1,35 @@
+package com.antigravity.securedata.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecordImportResult {
+
+    public static class LineError {
+        private long line;
+        private String error;
+
+        public LineError() {}
+
+        public LineError(long line, String error) {
+            this.line = line;
+            this.error = error;
+        }
+
+        public long getLine() { return line; }
+        public void setLine(long line) { this.line = line; }
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+
+    private long imported;
+    private long failed;
+    private List<LineError> errors = new ArrayList<>(); // first failures only, see failed for the total
+
+    public long getImported() { return imported; }
+    public void setImported(long imported) { this.imported = imported; }
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+    public List<LineError> getErrors() { return errors; }
+    public void setErrors(List<LineError> errors) { this.errors = errors; }
+}
@@ -0,0 +1,20 @@
+package com.antigravity.securedata.dto;
+
+import java.util.List;
+
+public class RecordPage {
+    private List<RecordResponse> items;
+    private String nextCursor; // null on the last page
+
+    public RecordPage() {}
+
+    public RecordPage(List<RecordResponse> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<RecordResponse> getItems() { return items; }
+    public void setItems(List<RecordResponse> items) { this.items = items; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
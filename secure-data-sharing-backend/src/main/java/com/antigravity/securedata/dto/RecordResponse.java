@@ -1,5 +1,9 @@
 package com.antigravity.securedata.dto;
 
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
 public class RecordResponse {
     private String id;
     private String patientName;
@@ -7,6 +11,19 @@ public class RecordResponse {
     private String encryptedData;
     private String timestamp;
 
+    public RecordResponse() {}
+
+    // Used by the JPQL constructor expressions of the paged list queries.
+    // ciphertext is the binary column, legacyCiphertext the old JSON column (one of them is set).
+    public RecordResponse(UUID id, String patientName, String doctorName,
+                          byte[] ciphertext, String legacyCiphertext, LocalDateTime timestamp) {
+        this.id = id.toString();
+        this.patientName = patientName;
+        this.doctorName = doctorName;
+        this.encryptedData = ciphertext != null ? Base64.getEncoder().encodeToString(ciphertext) : legacyCiphertext;
+        this.timestamp = timestamp.toString();
+    }
+
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
     public String getPatientName() { return patientName; }
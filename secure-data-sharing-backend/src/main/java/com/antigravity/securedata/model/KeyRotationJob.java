@@ -0,0 +1,79 @@
+package com.antigravity.securedata.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One key rotation of a patient, from key version fromVersion to toVersion.
+// The user's keys are swapped when the job is created; the records follow chunk by chunk.
+@Entity
+@Table(name = "key_rotation_jobs", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "from_version"}))
+public class KeyRotationJob {
+
+    public enum Status {
+        RUNNING,
+        DONE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private java.util.UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private int fromVersion;
+
+    @Column(nullable = false)
+    private int toVersion;
+
+    // rk = d_new - d_old mod n (big-endian). Moves a C2 from the old key to the new one.
+    // Only held while records are still behind toVersion: set to null when the job is done,
+    // since together with the old (possibly compromised) key it gives away the new one.
+    @JsonIgnore
+    @Column(columnDefinition = "bytea")
+    private byte[] rotationKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.RUNNING;
+
+    @Column(nullable = false)
+    private long recordsRotated;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    private LocalDateTime completedAt;
+
+    public KeyRotationJob() {}
+
+    public java.util.UUID getId() { return id; }
+    public void setId(java.util.UUID id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public int getFromVersion() { return fromVersion; }
+    public void setFromVersion(int fromVersion) { this.fromVersion = fromVersion; }
+
+    public int getToVersion() { return toVersion; }
+    public void setToVersion(int toVersion) { this.toVersion = toVersion; }
+
+    public byte[] getRotationKey() { return rotationKey; }
+    public void setRotationKey(byte[] rotationKey) { this.rotationKey = rotationKey; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public long getRecordsRotated() { return recordsRotated; }
+    public void setRecordsRotated(long recordsRotated) { this.recordsRotated = recordsRotated; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
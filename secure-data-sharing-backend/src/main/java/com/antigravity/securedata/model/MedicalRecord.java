@@ -19,9 +19,18 @@ public class MedicalRecord {
     @JoinColumn(name = "doctor_a_id", nullable = false)
     private User doctorA;
 
-    @Column(columnDefinition = "TEXT", nullable = false)
+    // Legacy JSON ciphertext (Base64 fields); kept readable, no longer written
+    @Column(columnDefinition = "TEXT")
     private String encryptedData;
 
+    // Binary ciphertext envelope (see CiphertextEnvelope)
+    @Column(columnDefinition = "bytea")
+    private byte[] encryptedEnvelope;
+
+    // Patient key version C2 is encrypted under; behind the patient's while a rotation runs
+    @Column(nullable = false)
+    private int keyVersion;
+
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
     
@@ -41,6 +50,12 @@ public class MedicalRecord {
     public String getEncryptedData() { return encryptedData; }
     public void setEncryptedData(String encryptedData) { this.encryptedData = encryptedData; }
 
+    public byte[] getEncryptedEnvelope() { return encryptedEnvelope; }
+    public void setEncryptedEnvelope(byte[] encryptedEnvelope) { this.encryptedEnvelope = encryptedEnvelope; }
+
+    public int getKeyVersion() { return keyVersion; }
+    public void setKeyVersion(int keyVersion) { this.keyVersion = keyVersion; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,49 @@
+package com.antigravity.securedata.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Patient -> Doctor B delegation covering all of the patient's records.
+// Stores the re-encryption key once; ciphertexts are transformed for Doctor B at read time.
+@Entity
+@Table(name = "share_grants", uniqueConstraints = @UniqueConstraint(columnNames = {"patient_id", "doctor_b_id"}))
+public class ShareGrant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private java.util.UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id", nullable = false)
+    private User patient;
+
+    @ManyToOne
+    @JoinColumn(name = "doctor_b_id", nullable = false)
+    private User doctorB;
+
+    // rk = d_B - d_A mod n (big-endian), never sent to clients
+    @JsonIgnore
+    @Column(columnDefinition = "bytea", nullable = false)
+    private byte[] reEncryptionKey;
+
+    @Column(nullable = false)
+    private LocalDateTime grantedAt = LocalDateTime.now();
+
+    public ShareGrant() {}
+
+    public java.util.UUID getId() { return id; }
+    public void setId(java.util.UUID id) { this.id = id; }
+
+    public User getPatient() { return patient; }
+    public void setPatient(User patient) { this.patient = patient; }
+
+    public User getDoctorB() { return doctorB; }
+    public void setDoctorB(User doctorB) { this.doctorB = doctorB; }
+
+    public byte[] getReEncryptionKey() { return reEncryptionKey; }
+    public void setReEncryptionKey(byte[] reEncryptionKey) { this.reEncryptionKey = reEncryptionKey; }
+
+    public LocalDateTime getGrantedAt() { return grantedAt; }
+    public void setGrantedAt(LocalDateTime grantedAt) { this.grantedAt = grantedAt; }
+}
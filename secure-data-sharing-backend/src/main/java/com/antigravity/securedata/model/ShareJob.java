@@ -0,0 +1,85 @@
+package com.antigravity.securedata.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Durable batch-share request, drained in the background by ShareJobService.
+// Rows are claimed with FOR UPDATE SKIP LOCKED, so pending work survives restarts.
+@Entity
+@Table(name = "share_jobs")
+public class ShareJob {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Convert(converter = UuidListConverter.class)
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private List<UUID> recordIds;
+
+    @Convert(converter = UuidListConverter.class)
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private List<UUID> doctorIds;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Earliest time a worker may pick the job up: retry backoff, or the lease of a running job
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    private Integer sharesCreated;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime completedAt;
+
+    public ShareJob() {}
+
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+
+    public List<UUID> getRecordIds() { return recordIds; }
+    public void setRecordIds(List<UUID> recordIds) { this.recordIds = recordIds; }
+
+    public List<UUID> getDoctorIds() { return doctorIds; }
+    public void setDoctorIds(List<UUID> doctorIds) { this.doctorIds = doctorIds; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public Integer getSharesCreated() { return sharesCreated; }
+    public void setSharesCreated(Integer sharesCreated) { this.sharesCreated = sharesCreated; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "shared_records")
+@Table(name = "shared_records", uniqueConstraints = @UniqueConstraint(columnNames = {"original_record_id", "doctor_b_id"}))
 public class SharedRecord {
 
     @Id
@@ -19,9 +19,21 @@ public class SharedRecord {
     @JoinColumn(name = "doctor_b_id", nullable = false)
     private User doctorB;
 
-    @Column(columnDefinition = "TEXT", nullable = false)
+    // Legacy JSON ciphertext (Base64 fields); kept readable, no longer written
+    @Column(columnDefinition = "TEXT")
     private String reEncryptedData;
 
+    // Full binary envelope written before shares were deduplicated; kept readable, no longer written
+    @Column(columnDefinition = "bytea")
+    private byte[] reEncryptedEnvelope;
+
+    // Transformed C2 only (33-byte compressed point). C1, IV and the AES payload are
+    // read from the original record, so a share no longer repeats them. On its own this is
+    // not a ciphertext: always read shares through CiphertextStore.read(SharedRecord), which
+    // combines the two (and handles older shares that still carry a full copy).
+    @Column(columnDefinition = "bytea")
+    private byte[] reEncryptedC2;
+
     @Column(nullable = false)
     private LocalDateTime sharedAt = LocalDateTime.now();
 
@@ -39,6 +51,12 @@ public class SharedRecord {
     public String getReEncryptedData() { return reEncryptedData; }
     public void setReEncryptedData(String reEncryptedData) { this.reEncryptedData = reEncryptedData; }
 
+    public byte[] getReEncryptedEnvelope() { return reEncryptedEnvelope; }
+    public void setReEncryptedEnvelope(byte[] reEncryptedEnvelope) { this.reEncryptedEnvelope = reEncryptedEnvelope; }
+
+    public byte[] getReEncryptedC2() { return reEncryptedC2; }
+    public void setReEncryptedC2(byte[] reEncryptedC2) { this.reEncryptedC2 = reEncryptedC2; }
+
     public LocalDateTime getSharedAt() { return sharedAt; }
     public void setSharedAt(LocalDateTime sharedAt) { this.sharedAt = sharedAt; }
 }
@@ -23,6 +23,10 @@ public class User {
     @Column(columnDefinition = "TEXT") 
     private String privateKey; 
 
+    // Incremented on every key rotation (see KeyRotationService)
+    @Column(nullable = false)
+    private int keyVersion;
+
     public enum Role {
         PATIENT,
         DOCTOR_A,
@@ -53,4 +57,7 @@ public class User {
 
     public String getPrivateKey() { return privateKey; }
     public void setPrivateKey(String privateKey) { this.privateKey = privateKey; }
+
+    public int getKeyVersion() { return keyVersion; }
+    public void setKeyVersion(int keyVersion) { this.keyVersion = keyVersion; }
 }
@@ -0,0 +1,42 @@
+package com.antigravity.securedata.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Stores a list of UUIDs as one comma-separated TEXT column
+@Converter
+public class UuidListConverter implements AttributeConverter<List<UUID>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(List<UUID> ids) {
+        if (ids == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(ids.size() * 37);
+        for (UUID id : ids) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public List<UUID> convertToEntityAttribute(String column) {
+        if (column == null) {
+            return null;
+        }
+        List<UUID> ids = new ArrayList<>();
+        if (column.isEmpty()) {
+            return ids;
+        }
+        for (String id : column.split(",")) {
+            ids.add(UUID.fromString(id));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,14 @@
+package com.antigravity.securedata.repository;
+
+import com.antigravity.securedata.model.KeyRotationJob;
+import com.antigravity.securedata.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.UUID;
+import java.util.Optional;
+import java.util.List;
+
+public interface KeyRotationJobRepository extends JpaRepository<KeyRotationJob, UUID> {
+    Optional<KeyRotationJob> findByUserAndFromVersion(User user, int fromVersion);
+    boolean existsByUserAndStatus(User user, KeyRotationJob.Status status);
+    List<KeyRotationJob> findByStatus(KeyRotationJob.Status status);
+}
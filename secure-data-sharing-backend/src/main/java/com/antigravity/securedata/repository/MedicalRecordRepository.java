@@ -1,12 +1,69 @@
 package com.antigravity.securedata.repository;
 
+import com.antigravity.securedata.dto.RecordResponse;
 import com.antigravity.securedata.model.MedicalRecord;
 import com.antigravity.securedata.model.User;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, UUID> {
-    List<MedicalRecord> findByPatient(User patient);
-    List<MedicalRecord> findByDoctorA(User doctorA);
+    List<MedicalRecord> findByPatientOrderByCreatedAtDesc(User patient);
+    List<MedicalRecord> findByDoctorAOrderByCreatedAtDesc(User doctorA);
+
+    // Every record of every patient that has granted this doctor access (see ShareGrant)
+    @Query("select r from MedicalRecord r where r.patient in (select g.patient from ShareGrant g where g.doctorB = :doctorB)")
+    List<MedicalRecord> findGrantedTo(@Param("doctorB") User doctorB);
+
+    // Keyset-paged listing, newest first. Only the columns of RecordResponse are selected:
+    // no User entities (and their key columns) are loaded. Pass PageRequest.of(0, size).
+    @Query("select new com.antigravity.securedata.dto.RecordResponse(r.id, p.name, d.name, r.encryptedEnvelope, r.encryptedData, r.createdAt) "
+            + "from MedicalRecord r join r.patient p join r.doctorA d "
+            + "where p.id = :patientId order by r.createdAt desc, r.id desc")
+    List<RecordResponse> findPageByPatient(@Param("patientId") UUID patientId, Pageable page);
+
+    @Query("select new com.antigravity.securedata.dto.RecordResponse(r.id, p.name, d.name, r.encryptedEnvelope, r.encryptedData, r.createdAt) "
+            + "from MedicalRecord r join r.patient p join r.doctorA d "
+            + "where p.id = :patientId and (r.createdAt < :createdAt or (r.createdAt = :createdAt and r.id < :id)) "
+            + "order by r.createdAt desc, r.id desc")
+    List<RecordResponse> findPageByPatientAfter(@Param("patientId") UUID patientId,
+                                                @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") UUID id, Pageable page);
+
+    // Next chunk of a key rotation: records still under fromVersion, locked so that two
+    // workers can never transform the same C2 twice (see KeyRotationService)
+    @Query(value = "select * from medical_records where patient_id = :patientId and key_version = :fromVersion "
+            + "order by id limit :limit for update skip locked", nativeQuery = true)
+    List<MedicalRecord> lockForRotation(@Param("patientId") UUID patientId,
+                                        @Param("fromVersion") int fromVersion,
+                                        @Param("limit") int limit);
+
+    // Whether a key rotation still has records to convert before its rk can be dropped
+    boolean existsByPatientIdAndKeyVersionLessThan(UUID patientId, int keyVersion);
+
+    // Forward-only cursor over every record of a patient / Doctor A, oldest first (see RecordExportService).
+    // Rows arrive from PostgreSQL 500 at a time; must be consumed inside a transaction and closed.
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("select r from MedicalRecord r join fetch r.patient join fetch r.doctorA where r.patient.id = :patientId order by r.createdAt, r.id")
+    Stream<MedicalRecord> streamByPatient(@Param("patientId") UUID patientId);
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("select r from MedicalRecord r join fetch r.patient join fetch r.doctorA where r.doctorA.id = :doctorId order by r.createdAt, r.id")
+    Stream<MedicalRecord> streamByDoctorA(@Param("doctorId") UUID doctorId);
+
+    // Rows still holding the legacy JSON ciphertext (see LegacyCiphertextMigration)
+    List<MedicalRecord> findTop500ByEncryptedDataIsNotNull();
 }
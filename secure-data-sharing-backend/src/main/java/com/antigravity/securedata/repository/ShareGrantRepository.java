@@ -0,0 +1,14 @@
+package com.antigravity.securedata.repository;
+
+import com.antigravity.securedata.model.ShareGrant;
+import com.antigravity.securedata.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.UUID;
+import java.util.Optional;
+import java.util.List;
+
+public interface ShareGrantRepository extends JpaRepository<ShareGrant, UUID> {
+    Optional<ShareGrant> findByPatientAndDoctorB(User patient, User doctorB);
+    List<ShareGrant> findByPatient(User patient);
+    List<ShareGrant> findByDoctorB(User doctorB);
+}
@@ -0,0 +1,40 @@
+package com.antigravity.securedata.repository;
+
+import com.antigravity.securedata.model.ShareJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.List;
+
+public interface ShareJobRepository extends JpaRepository<ShareJob, UUID> {
+
+    // Jobs due for a worker: pending (or retrying) ones, and running ones whose lease expired
+    // because their worker died. SKIP LOCKED lets several instances poll without blocking each other.
+    // Must run inside a transaction; the rows stay locked until it commits.
+    @Query(value = "select * from share_jobs where status in ('PENDING', 'RUNNING') and next_attempt_at <= now() "
+            + "order by created_at limit :limit for update skip locked", nativeQuery = true)
+    List<ShareJob> lockDueJobs(@Param("limit") int limit);
+
+    // The writes below only apply while the worker still holds its claim: the job is RUNNING
+    // with the attempt number it was claimed with. Once a lease ran out and another worker
+    // re-claimed the job, attempts has moved on and they update nothing (return 0).
+
+    @Modifying
+    @Query("update ShareJob j set j.nextAttemptAt = :leaseUntil "
+            + "where j.id = :id and j.status = com.antigravity.securedata.model.ShareJob.Status.RUNNING and j.attempts = :attempt")
+    int renewLease(@Param("id") UUID id, @Param("attempt") int attempt, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("update ShareJob j set j.status = :status, j.sharesCreated = :sharesCreated, j.lastError = :lastError, "
+            + "j.nextAttemptAt = :nextAttemptAt, j.completedAt = :completedAt "
+            + "where j.id = :id and j.status = com.antigravity.securedata.model.ShareJob.Status.RUNNING and j.attempts = :attempt")
+    int finishAttempt(@Param("id") UUID id, @Param("attempt") int attempt,
+                      @Param("status") ShareJob.Status status,
+                      @Param("sharesCreated") Integer sharesCreated,
+                      @Param("lastError") String lastError,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("completedAt") LocalDateTime completedAt);
+}
@@ -3,12 +3,67 @@ package com.antigravity.securedata.repository;
 import com.antigravity.securedata.model.MedicalRecord;
 import com.antigravity.securedata.model.SharedRecord;
 import com.antigravity.securedata.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.UUID;
 import java.util.List;
+import java.util.Optional;
 
 public interface SharedRecordRepository extends JpaRepository<SharedRecord, UUID> {
-    List<SharedRecord> findByDoctorB(User doctorB);
+    List<SharedRecord> findByDoctorBOrderBySharedAtDesc(User doctorB);
 
-    boolean existsByOriginalRecordAndDoctorB(MedicalRecord originalRecord, User doctorB);
+    Optional<SharedRecord> findByOriginalRecordAndDoctorB(MedicalRecord originalRecord, User doctorB);
+
+    // One row of the Doctor B listing: the share's ciphertext columns plus the original record's,
+    // which a C2-only share needs for C1, IV and payload (see CiphertextStore.read(SharePageRow))
+    interface SharePageRow {
+        UUID getId();
+        String getPatientName();
+        String getDoctorName();
+        LocalDateTime getSharedAt();
+        byte[] getReEncryptedC2();
+        byte[] getReEncryptedEnvelope();
+        String getReEncryptedData();
+        byte[] getOriginalEnvelope();
+        String getOriginalData();
+    }
+
+    // Keyset-paged listing for Doctor B, newest share first. Like the MedicalRecordRepository page
+    // queries, only the listed columns are selected: no User entities (and their key columns) are
+    // loaded. Pass PageRequest.of(0, size).
+    @Query("select s.id as id, p.name as patientName, d.name as doctorName, s.sharedAt as sharedAt, "
+            + "s.reEncryptedC2 as reEncryptedC2, s.reEncryptedEnvelope as reEncryptedEnvelope, s.reEncryptedData as reEncryptedData, "
+            + "r.encryptedEnvelope as originalEnvelope, r.encryptedData as originalData "
+            + "from SharedRecord s join s.originalRecord r join r.patient p join r.doctorA d "
+            + "where s.doctorB.id = :doctorId order by s.sharedAt desc, s.id desc")
+    List<SharePageRow> findPageByDoctorB(@Param("doctorId") UUID doctorId, Pageable page);
+
+    @Query("select s.id as id, p.name as patientName, d.name as doctorName, s.sharedAt as sharedAt, "
+            + "s.reEncryptedC2 as reEncryptedC2, s.reEncryptedEnvelope as reEncryptedEnvelope, s.reEncryptedData as reEncryptedData, "
+            + "r.encryptedEnvelope as originalEnvelope, r.encryptedData as originalData "
+            + "from SharedRecord s join s.originalRecord r join r.patient p join r.doctorA d "
+            + "where s.doctorB.id = :doctorId and (s.sharedAt < :sharedAt or (s.sharedAt = :sharedAt and s.id < :id)) "
+            + "order by s.sharedAt desc, s.id desc")
+    List<SharePageRow> findPageByDoctorBAfter(@Param("doctorId") UUID doctorId,
+                                              @Param("sharedAt") LocalDateTime sharedAt,
+                                              @Param("id") UUID id, Pageable page);
+
+    // Rows still holding a full ciphertext copy, JSON or envelope (see LegacyCiphertextMigration)
+    List<SharedRecord> findTop500ByReEncryptedDataIsNotNullOrReEncryptedEnvelopeIsNotNull();
+
+    interface SharePair {
+        UUID getRecordId();
+        UUID getDoctorId();
+    }
+
+    // Pairs that already exist, so batch shares can skip their crypto. Only an optimization:
+    // the insert-on-conflict in RecordSharingService is what keeps shares unique
+    @Query("select s.originalRecord.id as recordId, s.doctorB.id as doctorId from SharedRecord s "
+            + "where s.originalRecord.id in :recordIds and s.doctorB.id in :doctorIds")
+    List<SharePair> findSharedPairs(@Param("recordIds") Collection<UUID> recordIds,
+                                    @Param("doctorIds") Collection<UUID> doctorIds);
 }
@@ -0,0 +1,42 @@
+package com.antigravity.securedata.service;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * AES keys for the bounded scalar space: K(s) = SHA-256(String.valueOf(s))[0..16).
+ *
+ * There are only MAX_S possible keys, so the first `size` of them are kept in an array
+ * indexed by s (no boxing, no map). Each slot is derived the first time its scalar is
+ * used, so the cache costs nothing at startup and only grows with the scalars actually
+ * seen. Only the SecretKeySpec is cached: Cipher.init still expands the AES key schedule
+ * on every call. Scalars at or above `size` (or all of them, when size is 0) are derived
+ * per call. About 80 bytes per filled slot.
+ */
+final class AesKeyCache {
+
+    private final AtomicReferenceArray<SecretKeySpec> keys;
+
+    AesKeyCache(int size) {
+        this.keys = new AtomicReferenceArray<>(size);
+    }
+
+    SecretKeySpec get(int s, MessageDigest sha256) {
+        if (s >= keys.length()) {
+            return derive(s, sha256);
+        }
+        SecretKeySpec key = keys.get(s);
+        if (key == null) {
+            // Two threads may both derive the same slot; they produce equal keys
+            key = derive(s, sha256);
+            keys.set(s, key);
+        }
+        return key;
+    }
+
+    private static SecretKeySpec derive(int s, MessageDigest sha256) {
+        byte[] digest = sha256.digest(String.valueOf(s).getBytes());
+        return new SecretKeySpec(digest, 0, 16, "AES");
+    }
+}
@@ -0,0 +1,114 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.dto.DecryptedRecordResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Decrypts many records with one key on the crypto executor and streams each result
+ * as an NDJSON line ({@link DecryptedRecordResponse}) in completion order, so the
+ * client can render records while the rest are still being decrypted.
+ *
+ * cryptoExecutor is shared and its queue is unbounded, so a request never has more than
+ * twice the pool size in flight: a large "decrypt all" cannot queue thousands of tasks
+ * ahead of other crypto callers. Whatever is still pending when the stream ends early
+ * (client gone, write failed) is cancelled.
+ */
+@Service
+public class BulkDecryptService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    @Autowired
+    private ExecutorService cryptoExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * @param ciphertexts record id -> ciphertext, loaded and parsed by the caller
+     *                    (the body runs after the request thread has returned)
+     * @param failures    record id -> error message for ids that could not be loaded;
+     *                    written first, as-is
+     */
+    public StreamingResponseBody decryptAll(Map<String, CryptographyService.EncryptedRecord> ciphertexts,
+                                            Map<String, String> failures, BigInteger d) {
+        return out -> {
+            for (Map.Entry<String, String> failure : failures.entrySet()) {
+                writeLine(out, new DecryptedRecordResponse(failure.getKey(), null, failure.getValue()));
+            }
+            out.flush();
+
+            CompletionService<DecryptedRecordResponse> completion = new ExecutorCompletionService<>(cryptoExecutor);
+            Iterator<Map.Entry<String, CryptographyService.EncryptedRecord>> next = ciphertexts.entrySet().iterator();
+            Set<Future<DecryptedRecordResponse>> pending = new HashSet<>();
+            int maxInFlight = 2 * poolSize();
+            try {
+                while (next.hasNext() && pending.size() < maxInFlight) {
+                    pending.add(submit(completion, next.next(), d));
+                }
+                while (!pending.isEmpty()) {
+                    Future<DecryptedRecordResponse> done = completion.take();
+                    pending.remove(done);
+                    if (next.hasNext()) {
+                        pending.add(submit(completion, next.next(), d));
+                    }
+                    writeLine(out, done.get());
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                for (Future<DecryptedRecordResponse> future : pending) {
+                    future.cancel(false);
+                }
+            }
+        };
+    }
+
+    private Future<DecryptedRecordResponse> submit(CompletionService<DecryptedRecordResponse> completion,
+                                                   Map.Entry<String, CryptographyService.EncryptedRecord> entry,
+                                                   BigInteger d) {
+        return completion.submit(() -> {
+            try {
+                return new DecryptedRecordResponse(entry.getKey(), cryptoService.decryptData(entry.getValue(), d), null);
+            } catch (Exception e) {
+                return new DecryptedRecordResponse(entry.getKey(), null, "Decryption failed.");
+            }
+        });
+    }
+
+    private int poolSize() {
+        if (cryptoExecutor instanceof ThreadPoolExecutor pool) {
+            return pool.getMaximumPoolSize();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    // writeValueAsBytes rather than writeValue(out, ...), which would close the response stream
+    private void writeLine(OutputStream out, DecryptedRecordResponse line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write(NEWLINE);
+    }
+}
@@ -0,0 +1,111 @@
+package com.antigravity.securedata.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Versioned binary encoding of an {@link CryptographyService.EncryptedRecord}.
+ *
+ * Layout (big-endian):
+ *   3 bytes  magic        "PRE"
+ *   1 byte   version      1 or 2
+ *   1 byte   scheme       version 2 only: payload scheme (see PayloadCipher)
+ *   33 bytes C1           compressed EC point
+ *   33 bytes C2           compressed EC point
+ *   1 byte   iv length
+ *   n bytes  iv
+ *   4 bytes  ciphertext length
+ *   m bytes  ciphertext   AES output
+ *
+ * Replaces the Base64-in-JSON-in-TEXT representation: no intermediate Strings, and
+ * roughly 40% smaller for the same record. Version 1 envelopes have no scheme byte and
+ * always hold an AES-CBC payload; they are still written for such payloads, so re-encoding
+ * an existing record does not change its bytes.
+ *
+ * decode() trusts nothing in the column: the version, the scheme and every length are
+ * checked against what is left of the input, and anything truncated, oversized or
+ * trailing is rejected with IllegalArgumentException.
+ */
+public final class CiphertextEnvelope {
+
+    private static final byte[] MAGIC = {'P', 'R', 'E'};
+    private static final byte VERSION_CBC = 1;
+    private static final byte VERSION_SCHEME = 2;
+    private static final int POINT_BYTES = 33;
+    private static final int MAX_IV_BYTES = 16;
+
+    private CiphertextEnvelope() {}
+
+    public static boolean isEnvelope(byte[] bytes) {
+        return bytes != null && bytes.length > MAGIC.length
+                && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1] && bytes[2] == MAGIC[2];
+    }
+
+    public static byte[] encode(CryptographyService.EncryptedRecord record) {
+        if (record.c1.length != POINT_BYTES || record.c2.length != POINT_BYTES) {
+            throw new IllegalArgumentException("Envelope expects compressed EC points");
+        }
+        boolean cbc = record.scheme == PayloadCipher.AES_CBC;
+        ByteBuffer out = ByteBuffer.allocate(MAGIC.length + 1 + (cbc ? 0 : 1) + 2 * POINT_BYTES
+                + 1 + record.iv.length + Integer.BYTES + record.encryptedData.length);
+        out.put(MAGIC);
+        if (cbc) {
+            out.put(VERSION_CBC);
+        } else {
+            out.put(VERSION_SCHEME).put(record.scheme);
+        }
+        out.put(record.c1).put(record.c2);
+        out.put((byte) record.iv.length).put(record.iv);
+        out.putInt(record.encryptedData.length).put(record.encryptedData);
+        return out.array();
+    }
+
+    public static CryptographyService.EncryptedRecord decode(byte[] bytes) {
+        if (!isEnvelope(bytes)) {
+            throw new IllegalArgumentException("Not a ciphertext envelope");
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes, MAGIC.length, bytes.length - MAGIC.length);
+        byte version = in.get();
+        if (version != VERSION_CBC && version != VERSION_SCHEME) {
+            throw new IllegalArgumentException("Unsupported ciphertext envelope version " + version);
+        }
+
+        CryptographyService.EncryptedRecord record = new CryptographyService.EncryptedRecord();
+        if (version == VERSION_CBC) {
+            record.scheme = PayloadCipher.AES_CBC;
+        } else {
+            require(in, 1, "scheme");
+            record.scheme = in.get();
+            if (record.scheme != PayloadCipher.AES_GCM && record.scheme != PayloadCipher.AES_GCM_DEFLATE) {
+                throw new IllegalArgumentException("Unsupported payload scheme " + record.scheme);
+            }
+        }
+        require(in, 2 * POINT_BYTES + 1, "EC points");
+        record.c1 = new byte[POINT_BYTES];
+        in.get(record.c1);
+        record.c2 = new byte[POINT_BYTES];
+        in.get(record.c2);
+
+        int ivLength = in.get() & 0xFF;
+        if (ivLength == 0 || ivLength > MAX_IV_BYTES) {
+            throw new IllegalArgumentException("Invalid IV length " + ivLength);
+        }
+        require(in, ivLength + Integer.BYTES, "IV");
+        record.iv = new byte[ivLength];
+        in.get(record.iv);
+
+        int dataLength = in.getInt();
+        if (dataLength < 0 || dataLength != in.remaining()) {
+            throw new IllegalArgumentException("Ciphertext length " + dataLength + " does not match the "
+                    + in.remaining() + " bytes left in the envelope");
+        }
+        record.encryptedData = new byte[dataLength];
+        in.get(record.encryptedData);
+        return record;
+    }
+
+    private static void require(ByteBuffer in, int bytes, String field) {
+        if (in.remaining() < bytes) {
+            throw new IllegalArgumentException("Truncated ciphertext envelope: " + field);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.KeyRotationJob;
+import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.model.SharedRecord;
+import com.antigravity.securedata.model.User;
+import com.antigravity.securedata.repository.KeyRotationJobRepository;
+import com.antigravity.securedata.repository.SharedRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads and writes the ciphertext columns of records.
+ *
+ * New ciphertexts are written as binary envelopes ({@link CiphertextEnvelope}); rows
+ * written before the envelope existed only have the legacy JSON column and are parsed
+ * from that instead. Writing a record always clears its legacy column.
+ *
+ * Re-encryption only changes C2, so a share stores just its transformed C2 and takes
+ * C1, IV and the AES payload from the original record; the payload exists once no
+ * matter how many doctors it is shared with. Shares written earlier still carry a full
+ * copy (envelope or JSON) and are read from that.
+ *
+ * Medical records are always returned encrypted under the patient's current key. A
+ * record still under an older key version (a key rotation is in progress) has the
+ * rotation's C2 transform applied in memory; see {@link KeyRotationService}. The rotation
+ * keys this needs are cached like private keys (bounded, expiring, wiped on removal) and
+ * dropped as soon as their rotation finishes.
+ */
+@Component
+public class CiphertextStore {
+
+    private static class RotationKey {
+        final byte[] rk;
+        final long expiresAt;
+
+        RotationKey(byte[] rk, long expiresAt) {
+            this.rk = rk;
+            this.expiresAt = expiresAt;
+        }
+
+        void wipe() {
+            Arrays.fill(rk, (byte) 0);
+        }
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    @Autowired
+    private KeyRotationJobRepository keyRotationJobRepository;
+
+    // rk of running rotations, keyed by user and the version it rotates from
+    private final Map<String, RotationKey> rotationKeys;
+    private final long rotationKeyTtlMillis;
+
+    public CiphertextStore(@Value("${crypto.rotation-key-cache.size:100}") int maxRotationKeys,
+                           @Value("${crypto.rotation-key-cache.ttl-seconds:300}") long rotationKeyTtlSeconds) {
+        this.rotationKeyTtlMillis = rotationKeyTtlSeconds * 1000;
+        this.rotationKeys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RotationKey> eldest) {
+                if (size() > maxRotationKeys) {
+                    eldest.getValue().wipe();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CryptographyService.EncryptedRecord read(MedicalRecord record) throws IOException {
+        CryptographyService.EncryptedRecord ciphertext = readStored(record);
+        User patient = record.getPatient();
+        for (int version = record.getKeyVersion(); version < patient.getKeyVersion(); version++) {
+            ciphertext = cryptoService.reEncrypt(ciphertext, rotationKey(patient, version));
+        }
+        return ciphertext;
+    }
+
+    // The ciphertext as stored, under the record's own key version
+    public CryptographyService.EncryptedRecord readStored(MedicalRecord record) throws IOException {
+        return read(record.getEncryptedEnvelope(), record.getEncryptedData());
+    }
+
+    // Expects a ciphertext under the patient's current key
+    public void write(MedicalRecord record, CryptographyService.EncryptedRecord ciphertext) {
+        record.setEncryptedEnvelope(CiphertextEnvelope.encode(ciphertext));
+        record.setEncryptedData(null);
+        record.setKeyVersion(record.getPatient().getKeyVersion());
+    }
+
+    public CryptographyService.EncryptedRecord read(SharedRecord shared) throws IOException {
+        MedicalRecord original = shared.getOriginalRecord();
+        return readShare(shared.getReEncryptedC2(), shared.getReEncryptedEnvelope(), shared.getReEncryptedData(),
+                original.getEncryptedEnvelope(), original.getEncryptedData());
+    }
+
+    // Same as read(SharedRecord), from the columns of the paged Doctor B listing
+    public CryptographyService.EncryptedRecord read(SharedRecordRepository.SharePageRow row) throws IOException {
+        return readShare(row.getReEncryptedC2(), row.getReEncryptedEnvelope(), row.getReEncryptedData(),
+                row.getOriginalEnvelope(), row.getOriginalData());
+    }
+
+    // Expects the output of CryptographyService.reEncrypt for the share's original record
+    public void write(SharedRecord shared, CryptographyService.EncryptedRecord ciphertext) {
+        shared.setReEncryptedC2(ciphertext.c2);
+        shared.setReEncryptedEnvelope(null);
+        shared.setReEncryptedData(null);
+    }
+
+    // Called once a rotation has converted every record, so its rk is no longer needed here
+    public void forgetRotationKey(UUID userId, int fromVersion) {
+        synchronized (rotationKeys) {
+            RotationKey entry = rotationKeys.remove(userId + ":" + fromVersion);
+            if (entry != null) {
+                entry.wipe();
+            }
+        }
+    }
+
+    private BigInteger rotationKey(User patient, int fromVersion) {
+        String key = patient.getId() + ":" + fromVersion;
+        long now = System.currentTimeMillis();
+        synchronized (rotationKeys) {
+            RotationKey entry = rotationKeys.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    return new BigInteger(1, entry.rk);
+                }
+                rotationKeys.remove(key);
+                entry.wipe();
+            }
+        }
+
+        // Loaded outside the lock; a failed lookup caches nothing and the next read retries
+        KeyRotationJob job = keyRotationJobRepository.findByUserAndFromVersion(patient, fromVersion)
+                .orElseThrow(() -> new RuntimeException("Record is encrypted under an unknown key version."));
+        if (job.getRotationKey() == null) {
+            // The rotation finished and dropped its rk; see KeyRotationService
+            throw new RuntimeException("Record is encrypted under a retired key version.");
+        }
+        BigInteger rk = new BigInteger(1, job.getRotationKey());
+        synchronized (rotationKeys) {
+            RotationKey previous = rotationKeys.put(key, new RotationKey(job.getRotationKey().clone(), now + rotationKeyTtlMillis));
+            if (previous != null) {
+                previous.wipe();
+            }
+        }
+        return rk;
+    }
+
+    private CryptographyService.EncryptedRecord readShare(byte[] c2, byte[] envelope, String legacyJson,
+                                                          byte[] originalEnvelope, String originalLegacyJson) throws IOException {
+        if (c2 == null) {
+            return read(envelope, legacyJson);
+        }
+        // Only C1, IV and payload are taken from the original (a key rotation never changes
+        // them), so its own C2 is not brought up to date first
+        CryptographyService.EncryptedRecord ciphertext = read(originalEnvelope, originalLegacyJson);
+        ciphertext.c2 = c2;
+        return ciphertext;
+    }
+
+    private CryptographyService.EncryptedRecord read(byte[] envelope, String legacyJson) throws IOException {
+        if (envelope != null) {
+            return CiphertextEnvelope.decode(envelope);
+        }
+        if (legacyJson != null) {
+            return objectMapper.readValue(legacyJson, CryptographyService.EncryptedRecord.class);
+        }
+        throw new RuntimeException("Record has no ciphertext");
+    }
+}
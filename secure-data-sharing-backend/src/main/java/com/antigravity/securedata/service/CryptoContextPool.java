@@ -0,0 +1,127 @@
+package com.antigravity.securedata.service;
+
+import javax.crypto.Cipher;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reusable JCA objects for CryptographyService.
+ *
+ * getInstance() walks the provider registry and allocates a fresh engine every time.
+ * A context is borrowed for one operation and handed back, so at most one thread uses
+ * it at a time. Unlike a ThreadLocal this stays bounded when requests run on virtual
+ * threads (one per request, never reused): the pool keeps at most maxIdle contexts and
+ * simply creates more, temporarily, under bursts.
+ */
+final class CryptoContextPool {
+
+    // Only the digest is used by every payload operation; the rest is created on first use,
+    // so a context borrowed for AES-GCM never pays for a BC KeyPairGenerator or native zlib state
+    static final class Context {
+        final MessageDigest sha256;
+        private final String curveName;
+        private Cipher aesCbc;
+        private Cipher aesGcm;
+        private Deflater deflater; // raw deflate, see PayloadCipher
+        private Inflater inflater;
+        private KeyFactory ecKeyFactory;
+        private KeyPairGenerator ecKeyPairGenerator;
+
+        private Context(String curveName) throws GeneralSecurityException {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+            this.curveName = curveName;
+        }
+
+        Cipher aesCbc() throws GeneralSecurityException {
+            if (aesCbc == null) {
+                aesCbc = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            }
+            return aesCbc;
+        }
+
+        Cipher aesGcm() throws GeneralSecurityException {
+            if (aesGcm == null) {
+                aesGcm = Cipher.getInstance("AES/GCM/NoPadding");
+            }
+            return aesGcm;
+        }
+
+        Deflater deflater() {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+            return deflater;
+        }
+
+        Inflater inflater() {
+            if (inflater == null) {
+                inflater = new Inflater(true);
+            }
+            return inflater;
+        }
+
+        KeyFactory ecKeyFactory() throws GeneralSecurityException {
+            if (ecKeyFactory == null) {
+                ecKeyFactory = KeyFactory.getInstance("EC", "BC");
+            }
+            return ecKeyFactory;
+        }
+
+        // Already initialized for the curve
+        KeyPairGenerator ecKeyPairGenerator() throws GeneralSecurityException {
+            if (ecKeyPairGenerator == null) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", "BC");
+                generator.initialize(new ECGenParameterSpec(curveName));
+                ecKeyPairGenerator = generator;
+            }
+            return ecKeyPairGenerator;
+        }
+
+        // Deflater and Inflater hold native memory; free it now rather than at GC
+        private void close() {
+            if (deflater != null) {
+                deflater.end();
+            }
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Context> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final String curveName;
+    private final int maxIdle;
+
+    CryptoContextPool(String curveName, int maxIdle) {
+        this.curveName = curveName;
+        this.maxIdle = maxIdle;
+    }
+
+    Context borrow() throws GeneralSecurityException {
+        Context context = idle.poll();
+        if (context != null) {
+            idleCount.decrementAndGet();
+            return context;
+        }
+        return new Context(curveName);
+    }
+
+    // Every user re-initializes the Ciphers, resets the Deflater/Inflater and MessageDigest.digest()
+    // resets itself, so a context can be returned even after a failed operation.
+    void release(Context context) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(context);
+        } else {
+            idleCount.decrementAndGet();
+            context.close();
+        }
+    }
+}
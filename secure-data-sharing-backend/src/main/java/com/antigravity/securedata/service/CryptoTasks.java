@@ -0,0 +1,45 @@
+package com.antigravity.securedata.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs a single CPU-heavy crypto call from a request thread.
+ *
+ * With crypto.executor.offload=true (set by the "virtual" profile) the call is handed to
+ * the bounded cryptoExecutor and the request thread waits for it. Request threads are then
+ * virtual and cheap to park, so many requests can block on the database at once while
+ * crypto itself stays capped at the pool size. Without offload the call runs inline on
+ * the Tomcat thread, as before.
+ */
+@Component
+public class CryptoTasks {
+
+    @Autowired
+    private ExecutorService cryptoExecutor;
+
+    @Value("${crypto.executor.offload:false}")
+    private boolean offload;
+
+    public <T> T run(Callable<T> task) throws Exception {
+        if (!offload) {
+            return task.call();
+        }
+        try {
+            return cryptoExecutor.submit(task).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+}
@@ -1,12 +1,27 @@
 package com.antigravity.securedata.service;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.math.ec.ECMultiplier;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.security.*;
-import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
 import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.ECPrivateKey;
 
@@ -15,7 +30,9 @@ import org.bouncycastle.jce.spec.ECPublicKeySpec;
 import org.bouncycastle.jce.spec.ECPrivateKeySpec;
 import org.bouncycastle.jce.ECNamedCurveTable;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import jakarta.annotation.PostConstruct;
 
 @Service
@@ -23,19 +40,128 @@ public class CryptographyService {
 
     private static final String CURVE_NAME = "secp256k1";
     private ECParameterSpec ecSpec;
+    private DiscreteLogSolver scalarSolver;
+    private ECMultiplier generatorMultiplier;
+
+    // Baby-step table size for scalar recovery (0 = sqrt(MAX_S)). Larger tables mean fewer giant steps per decrypt.
+    @Value("${crypto.dlog.baby-steps:0}")
+    private int babySteps;
+
+    // When set, the baby-step table is persisted here and memory-mapped instead of kept on the heap.
+    @Value("${crypto.dlog.table-file:}")
+    private String tableFile;
+
+    // Re-check the table file's CRC on every open (reads the whole file); the header is always checked
+    @Value("${crypto.dlog.table-file.verify-checksum:false}")
+    private boolean verifyTableChecksum;
+
+    // Scalars whose AES keys are kept once derived (0 = derive on every call, max MAX_S); see AesKeyCache
+    @Value("${crypto.aes-key-cache.size:0}")
+    private int aesKeyCacheSize;
+
+    private AesKeyCache aesKeys;
+
+    // Payload scheme for new records (see PayloadCipher): AES-GCM over UTF-8, deflated from this
+    // many bytes up when that makes it smaller. legacy-cbc writes the original AES-CBC payload,
+    // for as long as instances that cannot read the new one are still running.
+    @Value("${crypto.payload.legacy-cbc:false}")
+    private boolean legacyCbc;
+
+    @Value("${crypto.payload.compress-min-bytes:256}")
+    private int compressMinBytes = 256;
+
+    // Largest record text written or (after decompression) read back, in UTF-8 bytes
+    @Value("${crypto.payload.max-plain-bytes:1048576}")
+    private int maxPlainBytes = 1048576;
+
+    // Absent outside Spring (e.g. the JMH benchmarks); the global registry is then a no-op
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // Giant steps the scalar recovery needed per successful decrypt; failed recoveries are counted apart
+    private DistributionSummary dlogSteps;
+    private Counter dlogFailures;
+
+    // Set by the "startup" profile: provider, curve, tables and key cache are built on first use
+    // (or by a background warm-up once the application is ready) instead of before it starts
+    @Value("${crypto.lazy-init:false}")
+    private boolean lazyInit;
+
+    private volatile boolean initialized;
 
     @PostConstruct
     public void init() {
+        MeterRegistry registry = meterRegistry != null ? meterRegistry : Metrics.globalRegistry;
+        this.dlogSteps = DistributionSummary.builder("crypto.decrypt.dlog.steps")
+                .description("Giant steps taken to recover the key scalar in decryptData")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.dlogFailures = Counter.builder("crypto.decrypt.dlog.failures")
+                .description("Decrypts whose key scalar could not be recovered")
+                .register(registry);
+
+        if (!lazyInit) {
+            ensureInitialized();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (lazyInit && !initialized) {
+            Thread warmUp = new Thread(this::ensureInitialized, "crypto-warmup");
+            warmUp.setDaemon(true);
+            warmUp.start();
+        }
+    }
+
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        synchronized (this) {
+            if (!initialized) {
+                initialize();
+                initialized = true;
+            }
+        }
+    }
+
+    private void initialize() {
         Security.addProvider(new BouncyCastleProvider());
         this.ecSpec = ECNamedCurveTable.getParameterSpec(CURVE_NAME);
+
+        // Comb table of multiples of G, cached on the generator point itself, so every k*G in
+        // encryptData is a fixed-base multiplication instead of a generic double-and-add
+        FixedPointUtil.precompute(ecSpec.getG());
+        this.generatorMultiplier = new FixedPointCombMultiplier();
+
+        // Baby-step table for recovering 's' in decryptData (built or loaded once)
+        int steps = babySteps > 0 ? babySteps : (int) Math.ceil(Math.sqrt(MAX_S));
+        if (tableFile == null || tableFile.isBlank()) {
+            this.scalarSolver = new DiscreteLogSolver(ecSpec.getG(), MAX_S, steps);
+        } else {
+            try {
+                this.scalarSolver = DiscreteLogSolver.open(ecSpec.getG(), MAX_S, steps, Path.of(tableFile), verifyTableChecksum);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not open discrete-log table " + tableFile, e);
+            }
+        }
+
+        // AES key per scalar, paired with the solver above: decrypt = recover s, look up K(s)
+        this.aesKeys = new AesKeyCache(Math.min(Math.max(aesKeyCacheSize, 0), MAX_S));
     }
 
     // --- Key Management ---
 
+    @Timed(value = "crypto.operations", extraTags = {"operation", "generate-key-pair"}, histogram = true)
     public KeyPair generateKeyPair() throws Exception {
-        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("EC", "BC");
-        keyGen.initialize(new ECGenParameterSpec(CURVE_NAME));
-        return keyGen.generateKeyPair();
+        ensureInitialized();
+        CryptoContextPool.Context context = CONTEXTS.borrow();
+        try {
+            return context.ecKeyPairGenerator().generateKeyPair();
+        } finally {
+            CONTEXTS.release(context);
+        }
     }
 
     public String encodePublicKey(PublicKey key) {
@@ -45,6 +171,39 @@ public class CryptographyService {
     public String encodePrivateKey(PrivateKey key) {
         return Base64.getEncoder().encodeToString(key.getEncoded());
     }
+
+    // Cipher, MessageDigest and KeyFactory instances, reused instead of looked up per call
+    private static final CryptoContextPool CONTEXTS =
+            new CryptoContextPool(CURVE_NAME, Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+
+    // SecureRandom is thread-safe; one seeded instance instead of a new one per value
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Inverse of encodePublicKey: X.509 (Base64) -> public point Q
+    public ECPoint decodePublicKey(String base64) throws Exception {
+        ensureInitialized();
+        CryptoContextPool.Context context = CONTEXTS.borrow();
+        PublicKey key;
+        try {
+            key = context.ecKeyFactory().generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+        } finally {
+            CONTEXTS.release(context);
+        }
+        return ((org.bouncycastle.jce.interfaces.ECPublicKey) key).getQ();
+    }
+
+    // Inverse of encodePrivateKey: PKCS#8 (Base64) -> private scalar d
+    public BigInteger decodePrivateKey(String base64) throws Exception {
+        ensureInitialized();
+        CryptoContextPool.Context context = CONTEXTS.borrow();
+        PrivateKey key;
+        try {
+            key = context.ecKeyFactory().generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64)));
+        } finally {
+            CONTEXTS.release(context);
+        }
+        return ((org.bouncycastle.jce.interfaces.ECPrivateKey) key).getD();
+    }
     
     // --- ECC-ElGamal Encryption (Simplified for Demo) ---
     // Standard ECIES is usually preferred, but for PRE we need structural properties (Homomorphic/ElGamal-like).
@@ -332,100 +491,105 @@ public class CryptographyService {
     // - But for a DEMO of "Proxy Re-Encryption Transformation", this proves the math works.
     
     // --- Constant for Small Space ---
-    private static final int MAX_S = 100000; // Small space for brute-force recovery
+    static final int MAX_S = 100000; // Small space for baby-step/giant-step recovery
 
+    // Raw bytes; stored as a binary envelope (see CiphertextEnvelope).
+    // Jackson maps byte[] to Base64 strings, so legacy JSON rows still deserialize into this class.
     public static class EncryptedRecord {
-        public String c1; // Hex encoded EC Point
-        public String c2; // Hex encoded EC Point
-        public String encryptedData; // AES Encrypted content
-        public String iv; // AES IV
+        public byte[] c1; // Compressed EC Point (33 bytes)
+        public byte[] c2; // Compressed EC Point (33 bytes)
+        public byte[] encryptedData; // AES Encrypted content
+        public byte[] iv; // AES IV
+        public byte scheme; // How encryptedData was produced (PayloadCipher.AES_CBC, AES_GCM, ...)
     }
     
     // Helper to encode/decode points
-    public String encodePoint(ECPoint point) {
-        return Base64.getEncoder().encodeToString(point.getEncoded(true));
+    public byte[] encodePoint(ECPoint point) {
+        return point.getEncoded(true);
     }
     
-    public ECPoint decodePoint(String base64) {
-        return ecSpec.getCurve().decodePoint(Base64.getDecoder().decode(base64));
+    public ECPoint decodePoint(byte[] encoded) {
+        ensureInitialized();
+        return ecSpec.getCurve().decodePoint(encoded);
     }
 
+    @Timed(value = "crypto.operations", extraTags = {"operation", "encrypt"}, histogram = true)
     public EncryptedRecord encryptData(String data, PrivateKey senderPriv, PublicKey receiverPub) throws Exception {
+        ECPoint Q = ((org.bouncycastle.jce.interfaces.ECPublicKey) receiverPub).getQ();
+        return encryptData(data, Q, Q.getCurve().getMultiplier());
+    }
+
+    // Encrypt for a receiver point that already carries a fixed-base table (see PublicKeyCache),
+    // so rQ goes through the same comb multiplier as rG.
+    @Timed(value = "crypto.operations", extraTags = {"operation", "encrypt"}, histogram = true)
+    public EncryptedRecord encryptData(String data, ECPoint receiverQ) throws Exception {
+        return encryptData(data, receiverQ, generatorMultiplier);
+    }
+
+    private EncryptedRecord encryptData(String data, ECPoint Q, ECMultiplier qMultiplier) throws Exception {
+        ensureInitialized();
         // 1. Generate small random 's'
-        int s = new SecureRandom().nextInt(MAX_S);
-        
-        // 2. Derive K = SHA256(String(s))
-        String keyMaterial = String.valueOf(s);
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] aesKeyBytes = digest.digest(keyMaterial.getBytes());
-        // Truncate to 16 bytes for AES-128 if needed or use full
-        javax.crypto.SecretKey aesKey = new javax.crypto.spec.SecretKeySpec(aesKeyBytes, 0, 16, "AES");
-        
-        // 3. Encrypt Data with AES
-        javax.crypto.Cipher aesCipher = javax.crypto.Cipher.getInstance("AES/CBC/PKCS5Padding");
-        byte[] iv = new byte[16];
-        new SecureRandom().nextBytes(iv);
-        aesCipher.init(javax.crypto.Cipher.ENCRYPT_MODE, aesKey, new javax.crypto.spec.IvParameterSpec(iv));
-        byte[] encryptedBytes = aesCipher.doFinal(data.getBytes());
+        int s = RANDOM.nextInt(MAX_S);
+        EncryptedRecord record = new EncryptedRecord();
+
+        CryptoContextPool.Context context = CONTEXTS.borrow();
+        try {
+            // 2. Derive K = SHA256(String(s)), truncated to 16 bytes for AES-128 (cached, see AesKeyCache)
+            javax.crypto.SecretKey aesKey = aesKeys.get(s, context.sha256);
+
+            // 3. Encrypt Data with AES (GCM, compressed when it pays off; see PayloadCipher)
+            PayloadCipher.encrypt(context, aesKey, data, legacyCbc, compressMinBytes, maxPlainBytes, RANDOM, record);
+        } finally {
+            CONTEXTS.release(context);
+        }
         
         // 4. Encrypt 's' using EC-ElGamal: (C1, C2) = (rG, sG + rQ)
-        ECPoint Q = ((org.bouncycastle.jce.interfaces.ECPublicKey) receiverPub).getQ();
-        BigInteger r = new BigInteger(256, new SecureRandom()).mod(ecSpec.getN());
+        BigInteger r = new BigInteger(256, RANDOM).mod(ecSpec.getN());
         ECPoint G = ecSpec.getG();
         
-        ECPoint C1 = G.multiply(r);
-        ECPoint sG = G.multiply(BigInteger.valueOf(s));
-        ECPoint C2 = sG.add(Q.multiply(r));
+        ECPoint C1 = generatorMultiplier.multiply(G, r);
+        ECPoint sG = generatorMultiplier.multiply(G, BigInteger.valueOf(s));
+        ECPoint C2 = sG.add(qMultiplier.multiply(Q, r));
         
-        EncryptedRecord record = new EncryptedRecord();
         record.c1 = encodePoint(C1);
         record.c2 = encodePoint(C2);
-        record.encryptedData = Base64.getEncoder().encodeToString(encryptedBytes);
-        record.iv = Base64.getEncoder().encodeToString(iv);
         
         return record;
     }
     
+    @Timed(value = "crypto.operations", extraTags = {"operation", "decrypt"}, histogram = true)
     public String decryptData(EncryptedRecord record, PrivateKey receiverPriv) throws Exception {
+        return decryptData(record, ((org.bouncycastle.jce.interfaces.ECPrivateKey) receiverPriv).getD());
+    }
+
+    // Decrypt with an already-decoded private scalar (see PrivateKeyCache)
+    @Timed(value = "crypto.operations", extraTags = {"operation", "decrypt"}, histogram = true)
+    public String decryptData(EncryptedRecord record, BigInteger d) throws Exception {
+        ensureInitialized();
         ECPoint C1 = decodePoint(record.c1);
         ECPoint C2 = decodePoint(record.c2);
-        BigInteger d = ((org.bouncycastle.jce.interfaces.ECPrivateKey) receiverPriv).getD();
         
         // Recover sG = C2 - d*C1
         ECPoint sG = C2.subtract(C1.multiply(d));
         
-        // Brute force to find 's' (since we kept it small)
-        // Optimization: In real world, use Pollard's Rho or avoid mapped-point crypto.
-        int s = -1;
-        ECPoint G = ecSpec.getG();
-        // Naive search (OK for demo MAX_S=100000)
-        // Optimization: Pre-compute table?
-        // Doing dynamic linear search:
-        ECPoint temp = G.getCurve().getInfinity();
-        for(int i=0; i<MAX_S; i++) {
-            // Check if current multiples match sG. 
-            // Better: sG is normalized?
-            if(temp.equals(sG)) {
-                 s = i;
-                 break;
-            }
-            temp = temp.add(G);
+        // Recover 's' from sG with the baby-step/giant-step table (~sqrt(MAX_S) group operations)
+        int s = scalarSolver.solve(sG);
+        if (s == -1) {
+            dlogFailures.increment();
+            throw new RuntimeException("Decryption Failed: Could not recover key scalar.");
         }
+        dlogSteps.record(scalarSolver.lookupsFor(s));
         
-        if(s == -1) throw new RuntimeException("Decryption Failed: Could not recover key scalar.");
-        
-        // Derive K
-        String keyMaterial = String.valueOf(s);
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] aesKeyBytes = digest.digest(keyMaterial.getBytes());
-        javax.crypto.SecretKey aesKey = new javax.crypto.spec.SecretKeySpec(aesKeyBytes, 0, 16, "AES");
-        
-        // Decrypt AES
-        javax.crypto.Cipher aesCipher = javax.crypto.Cipher.getInstance("AES/CBC/PKCS5Padding");
-        aesCipher.init(javax.crypto.Cipher.DECRYPT_MODE, aesKey, new javax.crypto.spec.IvParameterSpec(Base64.getDecoder().decode(record.iv)));
-        byte[] plainBytes = aesCipher.doFinal(Base64.getDecoder().decode(record.encryptedData));
-        
-        return new String(plainBytes);
+        CryptoContextPool.Context context = CONTEXTS.borrow();
+        try {
+            // Derive K (cached, see AesKeyCache)
+            javax.crypto.SecretKey aesKey = aesKeys.get(s, context.sha256);
+
+            // Decrypt AES with the scheme the record was written with
+            return PayloadCipher.decrypt(context, aesKey, record, maxPlainBytes);
+        } finally {
+            CONTEXTS.release(context);
+        }
     }
     
     // --- Proxy Re-Encryption ---
@@ -434,10 +598,17 @@ public class CryptographyService {
     // NOTE: This requires knowing both keys. In real world, done via MPC or Interaction.
     // Here, we simulate the Patient A calling this. Patient A knows d_A.
     // We assume Patient A fetched d_B (Simulated secure exchange).
+    @Timed(value = "crypto.operations", extraTags = {"operation", "generate-re-encryption-key"}, histogram = true)
     public BigInteger generateReEncryptionKey(PrivateKey oldPriv, PrivateKey newPriv) {
          BigInteger dA = ((org.bouncycastle.jce.interfaces.ECPrivateKey) oldPriv).getD();
          BigInteger dB = ((org.bouncycastle.jce.interfaces.ECPrivateKey) newPriv).getD();
          
+         return generateReEncryptionKey(dA, dB);
+    }
+
+    @Timed(value = "crypto.operations", extraTags = {"operation", "generate-re-encryption-key"}, histogram = true)
+    public BigInteger generateReEncryptionKey(BigInteger dA, BigInteger dB) {
+        ensureInitialized();
          // RK = d_B - d_A mod n
          return dB.subtract(dA).mod(ecSpec.getN());
     }
@@ -445,6 +616,7 @@ public class CryptographyService {
     // Transform Ciphertext: (C1, C2) -> (C1, C2 + RK * C1)
     // C2 + (dB - dA) * C1 = (sG + rQA) + (dB - dA)rG
     // = sG + r dA G + r dB G - r dA G = sG + r dB G. (Valid Encryption for B).
+    @Timed(value = "crypto.operations", extraTags = {"operation", "re-encrypt"}, histogram = true)
     public EncryptedRecord reEncrypt(EncryptedRecord record, BigInteger rk) {
         ECPoint C1 = decodePoint(record.c1);
         ECPoint C2 = decodePoint(record.c2);
@@ -457,7 +629,39 @@ public class CryptographyService {
         newRecord.c2 = encodePoint(newC2); // Transformed
         newRecord.encryptedData = record.encryptedData; // Untouched
         newRecord.iv = record.iv; // Untouched
+        newRecord.scheme = record.scheme;
         
         return newRecord;
     }
+
+    // Re-encrypting many records with one rk (batch share, key rotation) gains more from
+    // parallelism than from batching beyond this; callers split larger lists into slices.
+    public static final int REENCRYPT_BATCH = 64;
+
+    // Same transform as reEncrypt for many records at once. The new C2 points are normalized
+    // together (one field inversion for the whole list, Montgomery's trick) instead of once
+    // per point inside getEncoded.
+    @Timed(value = "crypto.operations", extraTags = {"operation", "re-encrypt-batch"}, histogram = true)
+    public List<EncryptedRecord> reEncryptAll(List<EncryptedRecord> records, BigInteger rk) {
+        ensureInitialized();
+        ECPoint[] newC2s = new ECPoint[records.size()];
+        for (int i = 0; i < newC2s.length; i++) {
+            EncryptedRecord record = records.get(i);
+            newC2s[i] = decodePoint(record.c2).add(decodePoint(record.c1).multiply(rk));
+        }
+        ecSpec.getCurve().normalizeAll(newC2s);
+
+        List<EncryptedRecord> transformed = new ArrayList<>(newC2s.length);
+        for (int i = 0; i < newC2s.length; i++) {
+            EncryptedRecord record = records.get(i);
+            EncryptedRecord newRecord = new EncryptedRecord();
+            newRecord.c1 = record.c1;
+            newRecord.c2 = encodePoint(newC2s[i]);
+            newRecord.encryptedData = record.encryptedData;
+            newRecord.iv = record.iv;
+            newRecord.scheme = record.scheme;
+            transformed.add(newRecord);
+        }
+        return transformed;
+    }
 }
@@ -0,0 +1,177 @@
+package com.antigravity.securedata.service;
+
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Baby-step/giant-step recovery of a small scalar s from the point sG.
+ *
+ * The baby steps jG (1 <= j < m) are computed once and kept in an
+ * open-addressed index keyed by the normalized, compressed point. A lookup then
+ * walks at most ceil(maxScalar / m) giant steps of -mG, so recovery costs
+ * roughly sqrt(maxScalar) group operations instead of a linear scan.
+ *
+ * The index is a flat array of 12-byte slots (64-bit truncated point key, int
+ * scalar) in a ByteBuffer, so it can live on the heap or be memory-mapped from a
+ * table file (see {@link DiscreteLogTableFile}) when m grows large.
+ *
+ * A 64-bit key can collide for two different points. A hit is therefore only
+ * accepted after checking jG against the looked-up point; this costs one small
+ * scalar multiplication per solve, next to the ~sqrt(maxScalar) normalizations of the
+ * giant steps. A collision among the baby steps themselves (only the first j is
+ * kept) would make its later j unreachable; at m entries that chance is about
+ * m^2 / 2^65, which is why the key is not widened.
+ *
+ * Instances are immutable after construction and safe to share between threads.
+ */
+public class DiscreteLogSolver {
+
+    static final int SLOT_BYTES = Long.BYTES + Integer.BYTES;
+
+    private static final int EMPTY = 0; // j = 0 is never stored, so 0 marks a free slot
+    private static final int CHUNK = 4096;
+
+    private final ECPoint generator;
+    private final int babySteps;
+    private final int giantSteps;
+    private final ECPoint giantStride; // -(m * G)
+
+    private final ByteBuffer slots;
+    private final int mask;
+
+    public DiscreteLogSolver(ECPoint generator, int maxScalar) {
+        this(generator, maxScalar, (int) Math.ceil(Math.sqrt(maxScalar)));
+    }
+
+    public DiscreteLogSolver(ECPoint generator, int maxScalar, int babySteps) {
+        this(generator, maxScalar, babySteps, null);
+    }
+
+    DiscreteLogSolver(ECPoint generator, int maxScalar, int babySteps, ByteBuffer table) {
+        if (maxScalar <= 0 || babySteps <= 0) {
+            throw new IllegalArgumentException("maxScalar and babySteps must be positive");
+        }
+        this.generator = generator;
+        this.babySteps = babySteps;
+        this.giantSteps = (maxScalar + babySteps - 1) / babySteps;
+        this.giantStride = generator.multiply(BigInteger.valueOf(babySteps)).negate();
+
+        int capacity = capacityFor(babySteps);
+        this.mask = capacity - 1;
+        if (table == null) {
+            table = ByteBuffer.allocate(capacity * SLOT_BYTES);
+            fill(generator, babySteps, table);
+        } else if (table.capacity() != capacity * SLOT_BYTES) {
+            throw new IllegalArgumentException("Table size does not match " + babySteps + " baby steps");
+        }
+        this.slots = table;
+    }
+
+    /**
+     * Opens the table persisted at {@code file}, generating and writing it first if it is
+     * missing, truncated or was built for different parameters (or, with verifyChecksum,
+     * fails its CRC). The slots are memory-mapped, so they stay off the Java heap and are
+     * shared with the page cache across restarts.
+     */
+    public static DiscreteLogSolver open(ECPoint generator, int maxScalar, int babySteps, Path file,
+                                         boolean verifyChecksum) throws IOException {
+        ByteBuffer table = DiscreteLogTableFile.openOrCreate(generator, maxScalar, babySteps, file, verifyChecksum);
+        return new DiscreteLogSolver(generator, maxScalar, babySteps, table);
+    }
+
+    /**
+     * Returns s such that point == sG, or -1 if s is outside the searched range.
+     */
+    public int solve(ECPoint point) {
+        ECPoint current = point;
+        for (int i = 0; i <= giantSteps; i++) {
+            if (current.isInfinity()) {
+                return i * babySteps;
+            }
+            ECPoint normalized = current.normalize();
+            int j = get(key(normalized));
+            if (j != EMPTY && generator.multiply(BigInteger.valueOf(j)).normalize().equals(normalized)) {
+                return i * babySteps + j;
+            }
+            current = current.add(giantStride);
+        }
+        return -1;
+    }
+
+    // Table lookups (giant steps) that solve() made to return this result; -1 means all of them
+    public int lookupsFor(int result) {
+        return result < 0 ? giantSteps + 1 : result / babySteps + 1;
+    }
+
+    public int getBabySteps() { return babySteps; }
+    public int getGiantSteps() { return giantSteps; }
+
+    static int capacityFor(int babySteps) {
+        long capacity = Long.highestOneBit(Math.max(2L, babySteps) * 2 - 1) << 1;
+        if (capacity * SLOT_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many baby steps for a single table: " + babySteps);
+        }
+        return (int) capacity;
+    }
+
+    /**
+     * Writes the baby steps jG (1 <= j < m) into an empty slot table. Points are produced
+     * in chunks and normalized together, so each chunk costs a single field inversion.
+     */
+    static void fill(ECPoint generator, int babySteps, ByteBuffer table) {
+        int mask = table.capacity() / SLOT_BYTES - 1;
+        ECPoint[] chunk = new ECPoint[Math.min(CHUNK, Math.max(1, babySteps - 1))];
+        ECPoint current = generator;
+        for (int start = 1; start < babySteps; start += chunk.length) {
+            int count = Math.min(chunk.length, babySteps - start);
+            for (int k = 0; k < count; k++) {
+                chunk[k] = current;
+                current = current.add(generator);
+            }
+            generator.getCurve().normalizeAll(chunk, 0, count, null);
+            for (int k = 0; k < count; k++) {
+                put(table, mask, key(chunk[k]), start + k);
+            }
+        }
+    }
+
+    // Low 64 bits of the affine x coordinate, with the y parity folded in so that
+    // P and -P (which share x) never map to the same key.
+    static long key(ECPoint normalized) {
+        long x = normalized.getAffineXCoord().toBigInteger().longValue();
+        return normalized.getAffineYCoord().testBitZero() ? ~x : x;
+    }
+
+    private static int spread(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static void put(ByteBuffer table, int mask, long key, int value) {
+        int slot = spread(key) & mask;
+        while (table.getInt(slot * SLOT_BYTES + Long.BYTES) != EMPTY) {
+            if (table.getLong(slot * SLOT_BYTES) == key) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table.putLong(slot * SLOT_BYTES, key);
+        table.putInt(slot * SLOT_BYTES + Long.BYTES, value);
+    }
+
+    private int get(long key) {
+        int slot = spread(key) & mask;
+        int value;
+        while ((value = slots.getInt(slot * SLOT_BYTES + Long.BYTES)) != EMPTY) {
+            if (slots.getLong(slot * SLOT_BYTES) == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+}
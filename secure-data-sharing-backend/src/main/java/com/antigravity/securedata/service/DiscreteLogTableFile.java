@@ -0,0 +1,137 @@
+package com.antigravity.securedata.service;
+
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk format for the {@link DiscreteLogSolver} baby-step table.
+ *
+ * Layout (big-endian):
+ *   int  magic        "DLOG"
+ *   int  version      2
+ *   int  babySteps    m
+ *   int  capacity     number of 12-byte slots (power of two)
+ *   int  maxScalar    MAX_S the table was built for
+ *   int  reserved     0
+ *   long generator    point key of G, guards against a table built for another curve
+ *   long checksum     CRC32C over the slot region
+ *   ...  slots        capacity * (long key, int scalar)
+ *
+ * The table is generated into a temp file, forced to disk, read back and checked against
+ * its CRC once, and only then atomically moved into place. A crash mid-generation never
+ * leaves a half-written table behind.
+ *
+ * Opening checks the file size and every header field. A table written by an older
+ * version, or for another curve, MAX_S or m, is regenerated. Re-reading the whole slot
+ * region for the CRC on every open would fault in every page and throw away much of the
+ * point of mapping the file, so it is optional (verifyChecksum). A slot corrupted on disk
+ * afterwards cannot produce a wrong scalar either way: {@link DiscreteLogSolver} checks
+ * each table hit against the point, so a bad slot can only make a lookup miss.
+ */
+final class DiscreteLogTableFile {
+
+    private static final int MAGIC = 0x444C4F47; // "DLOG"
+    private static final int VERSION = 2;
+    static final int HEADER_BYTES = 40;
+
+    private DiscreteLogTableFile() {}
+
+    static ByteBuffer openOrCreate(ECPoint generator, int maxScalar, int babySteps, Path file,
+                                   boolean verifyChecksum) throws IOException {
+        Header expected = new Header(babySteps, DiscreteLogSolver.capacityFor(babySteps), maxScalar,
+                DiscreteLogSolver.key(generator.normalize()));
+
+        if (Files.exists(file)) {
+            ByteBuffer slots = map(file, expected, verifyChecksum);
+            if (slots != null) {
+                return slots;
+            }
+            System.out.println("Discrete-log table " + file + " is stale or corrupt, regenerating.");
+        }
+
+        write(generator, expected, file);
+        ByteBuffer slots = map(file, expected, false);
+        if (slots == null) {
+            throw new IOException("Discrete-log table " + file + " failed verification after generation");
+        }
+        return slots;
+    }
+
+    // Parameters a table file must have been built with
+    private record Header(int babySteps, int capacity, int maxScalar, long generatorKey) {}
+
+    // Returns the read-only slot region, or null if the size, header or (when asked) checksum does not match.
+    private static ByteBuffer map(Path file, Header expected, boolean verifyChecksum) throws IOException {
+        int capacity = expected.capacity();
+        long slotBytes = (long) capacity * DiscreteLogSolver.SLOT_BYTES;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + slotBytes) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getInt() != expected.babySteps() || header.getInt() != capacity
+                    || header.getInt() != expected.maxScalar() || header.getInt() != 0
+                    || header.getLong() != expected.generatorKey()) {
+                return null;
+            }
+            long checksum = header.getLong();
+
+            MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, slotBytes);
+            if (verifyChecksum && checksum(slots) != checksum) {
+                return null;
+            }
+            return slots;
+        }
+    }
+
+    private static long checksum(ByteBuffer slots) {
+        CRC32C crc = new CRC32C();
+        crc.update(slots.duplicate());
+        return crc.getValue();
+    }
+
+    private static void write(ECPoint generator, Header params, Path file) throws IOException {
+        int capacity = params.capacity();
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        long slotBytes = (long) capacity * DiscreteLogSolver.SLOT_BYTES;
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, slotBytes);
+            DiscreteLogSolver.fill(generator, params.babySteps(), slots);
+            long checksum = checksum(slots);
+            slots.force();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(params.babySteps()).putInt(capacity)
+                    .putInt(params.maxScalar()).putInt(0)
+                    .putLong(params.generatorKey()).putLong(checksum);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        // The one full check: what is on disk is what was generated, before it replaces anything
+        if (map(tmp, params, true) == null) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("Discrete-log table " + file + " failed verification after generation");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
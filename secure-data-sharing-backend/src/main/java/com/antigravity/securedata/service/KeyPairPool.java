@@ -0,0 +1,109 @@
+package com.antigravity.securedata.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pre-generated secp256k1 key pairs for user registration.
+ *
+ * Holds up to crypto.key-pool.high pairs. Whenever a take() leaves fewer than
+ * crypto.key-pool.low, a refill task on cryptoExecutor generates pairs until the pool
+ * is back at high. take() never waits: if the pool is empty it generates a pair on the
+ * calling thread, exactly as registration did before. Filling starts once the application
+ * is ready, so it does not delay startup. high = 0 disables the pool.
+ *
+ * take(count) serves bulk registration: it drains what the pool holds and generates the
+ * shortfall in parallel on cryptoExecutor. It waits on that executor, so it must not be
+ * called from one of its threads (e.g. through CryptoTasks).
+ */
+@Component
+public class KeyPairPool {
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    @Autowired
+    private ExecutorService cryptoExecutor;
+
+    private final BlockingQueue<KeyPair> pairs;
+    private final int low;
+    private final int high;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    public KeyPairPool(@Value("${crypto.key-pool.low:16}") int low,
+                       @Value("${crypto.key-pool.high:128}") int high) {
+        this.low = low;
+        this.high = high;
+        this.pairs = new ArrayBlockingQueue<>(Math.max(1, high));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void fill() {
+        refill();
+    }
+
+    public KeyPair take() throws Exception {
+        KeyPair pair = pairs.poll();
+        if (pairs.size() < low) {
+            refill();
+        }
+        return pair != null ? pair : cryptoService.generateKeyPair();
+    }
+
+    public List<KeyPair> take(int count) throws Exception {
+        List<KeyPair> taken = new ArrayList<>(count);
+        pairs.drainTo(taken, count);
+        int missing = count - taken.size();
+        if (missing > 0) {
+            Callable<KeyPair> generate = cryptoService::generateKeyPair;
+            try {
+                for (Future<KeyPair> pair : cryptoExecutor.invokeAll(Collections.nCopies(missing, generate))) {
+                    taken.add(pair.get());
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        if (pairs.size() < low) {
+            refill();
+        }
+        return taken;
+    }
+
+    private void refill() {
+        if (high <= 0 || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        cryptoExecutor.execute(() -> {
+            try {
+                while (pairs.size() < high) {
+                    if (!pairs.offer(cryptoService.generateKeyPair())) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                System.out.println("Key pair pool refill failed: " + e.getMessage());
+            } finally {
+                refilling.set(false);
+            }
+        });
+    }
+}
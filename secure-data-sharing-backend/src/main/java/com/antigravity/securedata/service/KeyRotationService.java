@@ -0,0 +1,244 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.KeyRotationJob;
+import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.model.ShareGrant;
+import com.antigravity.securedata.model.User;
+import com.antigravity.securedata.repository.KeyRotationJobRepository;
+import com.antigravity.securedata.repository.MedicalRecordRepository;
+import com.antigravity.securedata.repository.ShareGrantRepository;
+import com.antigravity.securedata.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rotates a patient's key pair without touching any AES payload.
+ *
+ * With rk = d_new - d_old, reEncrypt moves a C2 from the old key to the new one
+ * (C2 + rk*C1 = sG + d_new*C1). start() generates the new pair and, in one transaction,
+ * swaps it onto the user (keyVersion + 1), re-derives the patient's grant keys and
+ * records rk on a job row. From then on new records use the new key, and older ones stay
+ * readable because {@link CiphertextStore} applies rk in memory to records whose
+ * keyVersion is behind.
+ *
+ * The job then rewrites the stored C2s in chunks: each chunk locks up to chunk-size
+ * records still at the old version (FOR UPDATE SKIP LOCKED), transforms them in parallel
+ * on cryptoExecutor and commits them with the new version and the job's progress. The
+ * version column is the checkpoint: a job interrupted by a restart is picked up again by
+ * the poller and continues with whatever is left. Only one chunk is in memory at a time.
+ *
+ * rk is kept only while it is needed: once no record of the patient is behind toVersion
+ * the job is marked DONE and its rk is cleared in the same transaction. Anyone holding
+ * the old private key could otherwise recover the new one as d_old + rk.
+ *
+ * Single-node only: start() invalidates the key caches of this instance alone. Other
+ * instances rebuild their cache entries when they load the updated user, but a request
+ * there that loaded the patient before the swap can still write a record under the old
+ * key. If that happens after the job has finished, the record can no longer be read.
+ * Running rotations on more than one instance needs the invalidation to be broadcast
+ * first.
+ */
+@Service
+public class KeyRotationService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private ShareGrantRepository shareGrantRepository;
+
+    @Autowired
+    private KeyRotationJobRepository keyRotationJobRepository;
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    @Autowired
+    private PrivateKeyCache privateKeyCache;
+
+    @Autowired
+    private PublicKeyCache publicKeyCache;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private ExecutorService cryptoExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${crypto.key-rotation.chunk-size:500}")
+    private int chunkSize;
+
+    // Drives jobs one at a time; the crypto inside each chunk runs on cryptoExecutor
+    private ExecutorService driver;
+    private final Set<UUID> active = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        this.driver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "key-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        driver.shutdown();
+    }
+
+    public KeyRotationJob start(User user) throws Exception {
+        if (user.getRole() != User.Role.PATIENT) {
+            throw new RuntimeException("Key rotation is only supported for patients.");
+        }
+        if (keyRotationJobRepository.existsByUserAndStatus(user, KeyRotationJob.Status.RUNNING)) {
+            throw new RuntimeException("A key rotation is already running for this user.");
+        }
+
+        KeyPair keyPair = cryptoService.generateKeyPair();
+        String newPublicKey = cryptoService.encodePublicKey(keyPair.getPublic());
+        String newPrivateKey = cryptoService.encodePrivateKey(keyPair.getPrivate());
+        BigInteger oldD = privateKeyCache.get(user);
+        BigInteger newD = cryptoService.decodePrivateKey(newPrivateKey);
+
+        KeyRotationJob job = new KeyRotationJob();
+        job.setUser(user);
+        job.setFromVersion(user.getKeyVersion());
+        job.setToVersion(user.getKeyVersion() + 1);
+        job.setRotationKey(cryptoService.generateReEncryptionKey(oldD, newD).toByteArray());
+
+        KeyRotationJob saved = transactionTemplate.execute(status -> {
+            user.setPublicKey(newPublicKey);
+            user.setPrivateKey(newPrivateKey);
+            user.setKeyVersion(job.getToVersion());
+            userRepository.save(user);
+
+            // Grants hold d_B - d_patient; re-derive them for the new key
+            for (ShareGrant grant : shareGrantRepository.findByPatient(user)) {
+                try {
+                    BigInteger rk = cryptoService.generateReEncryptionKey(newD, privateKeyCache.get(grant.getDoctorB()));
+                    grant.setReEncryptionKey(rk.toByteArray());
+                } catch (Exception e) {
+                    throw new RuntimeException("Could not re-derive grant " + grant.getId(), e);
+                }
+            }
+            return keyRotationJobRepository.save(job);
+        });
+
+        // Local to this instance; see the class comment
+        publicKeyCache.invalidate(user.getId());
+        privateKeyCache.invalidate(user.getId());
+        submit(saved);
+        return saved;
+    }
+
+    // Picks up running jobs after a restart (or ones started on another instance)
+    @Scheduled(fixedDelayString = "${crypto.key-rotation.poll-interval-ms:30000}")
+    public void resumeRunning() {
+        for (KeyRotationJob job : keyRotationJobRepository.findByStatus(KeyRotationJob.Status.RUNNING)) {
+            submit(job);
+        }
+    }
+
+    private void submit(KeyRotationJob job) {
+        if (!active.add(job.getId())) {
+            return;
+        }
+        driver.execute(() -> {
+            try {
+                run(job);
+            } catch (Exception e) {
+                // Left RUNNING; the next poll retries from the remaining records
+                System.out.println("Key rotation " + job.getId() + " interrupted: " + e.getMessage());
+            } finally {
+                active.remove(job.getId());
+            }
+        });
+    }
+
+    private void run(KeyRotationJob job) {
+        BigInteger rk = new BigInteger(1, job.getRotationKey());
+        int rotated;
+        do {
+            rotated = transactionTemplate.execute(status -> rotateChunk(job, rk));
+        } while (rotated > 0);
+
+        boolean done = transactionTemplate.execute(status -> {
+            // Rows locked by someone else were skipped above; keep rk until they are converted too
+            if (medicalRecordRepository.existsByPatientIdAndKeyVersionLessThan(job.getUser().getId(), job.getToVersion())) {
+                return false;
+            }
+            Arrays.fill(job.getRotationKey(), (byte) 0);
+            job.setRotationKey(null);
+            job.setStatus(KeyRotationJob.Status.DONE);
+            job.setCompletedAt(LocalDateTime.now());
+            keyRotationJobRepository.save(job);
+            return true;
+        });
+        if (!done) {
+            // Left RUNNING; the next poll picks up the remaining records
+            return;
+        }
+        ciphertextStore.forgetRotationKey(job.getUser().getId(), job.getFromVersion());
+    }
+
+    private int rotateChunk(KeyRotationJob job, BigInteger rk) {
+        List<MedicalRecord> chunk = medicalRecordRepository.lockForRotation(job.getUser().getId(), job.getFromVersion(), chunkSize);
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        List<CryptographyService.EncryptedRecord> stored = new ArrayList<>(chunk.size());
+        for (MedicalRecord record : chunk) {
+            try {
+                stored.add(ciphertextStore.readStored(record));
+            } catch (Exception e) {
+                throw new RuntimeException("Could not read record " + record.getId(), e);
+            }
+        }
+
+        List<CompletableFuture<List<CryptographyService.EncryptedRecord>>> transforms = new ArrayList<>();
+        for (int from = 0; from < stored.size(); from += CryptographyService.REENCRYPT_BATCH) {
+            List<CryptographyService.EncryptedRecord> batch =
+                    stored.subList(from, Math.min(from + CryptographyService.REENCRYPT_BATCH, stored.size()));
+            transforms.add(CompletableFuture.supplyAsync(() -> cryptoService.reEncryptAll(batch, rk), cryptoExecutor));
+        }
+
+        int next = 0;
+        for (CompletableFuture<List<CryptographyService.EncryptedRecord>> transform : transforms) {
+            for (CryptographyService.EncryptedRecord rotated : transform.join()) {
+                MedicalRecord record = chunk.get(next++);
+                ciphertextStore.write(record, rotated);
+                record.setKeyVersion(job.getToVersion());
+            }
+        }
+        medicalRecordRepository.saveAll(chunk);
+
+        job.setRecordsRotated(job.getRecordsRotated() + chunk.size());
+        keyRotationJobRepository.save(job);
+        return chunk.size();
+    }
+}
@@ -0,0 +1,137 @@
+package com.antigravity.securedata.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Symmetric half of a record: the diagnosis under K(s).
+ *
+ * Schemes (stored in the envelope, see {@link CiphertextEnvelope}):
+ *   AES_CBC          AES-128-CBC/PKCS5 over the platform-default bytes of the text. The
+ *                    original format; still read, and written only with crypto.payload.legacy-cbc.
+ *   AES_GCM          AES-128-GCM (12-byte IV, 128-bit tag) over the UTF-8 text. GCM is
+ *                    authenticated, so a tampered payload fails instead of decrypting to garbage.
+ *   AES_GCM_DEFLATE  as AES_GCM, over the raw-deflated UTF-8 text. Used when the text is at
+ *                    least compressMinBytes long and deflating actually makes it smaller.
+ *
+ * Text is limited to maxPlainBytes in both directions. On decrypt this bounds inflation:
+ * GCM only proves the payload came from a key holder, not that it is a sane size, so a
+ * small compressed payload could otherwise expand without limit.
+ */
+final class PayloadCipher {
+
+    static final byte AES_CBC = 0;
+    static final byte AES_GCM = 1;
+    static final byte AES_GCM_DEFLATE = 2;
+
+    private static final int CBC_IV_BYTES = 16;
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    private PayloadCipher() {}
+
+    // Sets scheme, iv and encryptedData on the record
+    static void encrypt(CryptoContextPool.Context context, SecretKey key, String data, boolean legacyCbc,
+                        int compressMinBytes, int maxPlainBytes, SecureRandom random,
+                        CryptographyService.EncryptedRecord record) throws GeneralSecurityException {
+        if (legacyCbc) {
+            byte[] plain = checkSize(data.getBytes(), maxPlainBytes);
+            record.scheme = AES_CBC;
+            record.iv = new byte[CBC_IV_BYTES];
+            random.nextBytes(record.iv);
+            Cipher cbc = context.aesCbc();
+            cbc.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(record.iv));
+            record.encryptedData = cbc.doFinal(plain);
+            return;
+        }
+
+        byte[] plain = checkSize(data.getBytes(StandardCharsets.UTF_8), maxPlainBytes);
+        byte[] compressed = plain.length >= compressMinBytes ? deflate(plain, context.deflater()) : null;
+        record.scheme = compressed != null ? AES_GCM_DEFLATE : AES_GCM;
+        record.iv = new byte[GCM_IV_BYTES];
+        random.nextBytes(record.iv);
+        Cipher gcm = context.aesGcm();
+        gcm.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, record.iv));
+        record.encryptedData = gcm.doFinal(compressed != null ? compressed : plain);
+    }
+
+    static String decrypt(CryptoContextPool.Context context, SecretKey key, CryptographyService.EncryptedRecord record,
+                          int maxPlainBytes) throws GeneralSecurityException {
+        switch (record.scheme) {
+            case AES_CBC:
+                Cipher cbc = context.aesCbc();
+                cbc.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(record.iv));
+                return new String(cbc.doFinal(record.encryptedData));
+            case AES_GCM:
+            case AES_GCM_DEFLATE:
+                Cipher gcm = context.aesGcm();
+                gcm.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, record.iv));
+                byte[] plain = gcm.doFinal(record.encryptedData);
+                if (record.scheme == AES_GCM_DEFLATE) {
+                    plain = inflate(plain, context.inflater(), maxPlainBytes);
+                }
+                return new String(plain, StandardCharsets.UTF_8);
+            default:
+                throw new IllegalArgumentException("Unknown payload scheme " + record.scheme);
+        }
+    }
+
+    private static byte[] checkSize(byte[] plain, int maxPlainBytes) {
+        if (plain.length > maxPlainBytes) {
+            throw new IllegalArgumentException("Record text is " + plain.length + " bytes, more than the "
+                    + maxPlainBytes + " allowed");
+        }
+        return plain;
+    }
+
+    // Raw deflate into a buffer the size of the input: returns null as soon as the output
+    // would not be smaller, so incompressible text costs one partial pass and no copy
+    static byte[] deflate(byte[] input, Deflater deflater) {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        byte[] buffer = new byte[input.length];
+        int length = 0;
+        while (!deflater.finished() && length < buffer.length) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        if (!deflater.finished() || length >= input.length) {
+            return null;
+        }
+        byte[] out = new byte[length];
+        System.arraycopy(buffer, 0, out, 0, length);
+        return out;
+    }
+
+    // Fails as soon as the output passes maxBytes, before buffering any more of it
+    static byte[] inflate(byte[] input, Inflater inflater, int maxBytes) throws GeneralSecurityException {
+        inflater.reset();
+        inflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(maxBytes, input.length * 3L));
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated payload");
+                }
+                if (out.size() + n > maxBytes) {
+                    throw new GeneralSecurityException("Payload inflates beyond " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new GeneralSecurityException("Could not decompress payload", e);
+        }
+        return out.toByteArray();
+    }
+}
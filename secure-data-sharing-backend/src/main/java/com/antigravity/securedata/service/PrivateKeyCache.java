@@ -0,0 +1,109 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded, time-expiring cache of decoded private scalars per user.
+ *
+ * Saves the Base64 + PKCS#8 parse on every decrypt and share. Scalars are held as
+ * raw bytes and overwritten with zeros as soon as an entry expires, is evicted or
+ * is invalidated, so a decoded key does not outlive its TTL in this cache.
+ * Like {@link PublicKeyCache}, entries remember the encoded key they came from and
+ * are rebuilt if the user's key changed.
+ */
+@Component
+public class PrivateKeyCache {
+
+    private static class Entry {
+        final String encodedKey;
+        final byte[] scalar;
+        final long expiresAt;
+
+        Entry(String encodedKey, byte[] scalar, long expiresAt) {
+            this.encodedKey = encodedKey;
+            this.scalar = scalar;
+            this.expiresAt = expiresAt;
+        }
+
+        void wipe() {
+            Arrays.fill(scalar, (byte) 0);
+        }
+    }
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    private final Map<UUID, Entry> entries;
+    private final long ttlMillis;
+
+    public PrivateKeyCache(@Value("${crypto.private-key-cache.size:1000}") int maxEntries,
+                           @Value("${crypto.private-key-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                if (size() > maxEntries) {
+                    eldest.getValue().wipe();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public BigInteger get(User user) throws Exception {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(user.getId());
+            if (entry != null) {
+                if (entry.expiresAt > now && entry.encodedKey.equals(user.getPrivateKey())) {
+                    return new BigInteger(1, entry.scalar);
+                }
+                entries.remove(user.getId());
+                entry.wipe();
+            }
+        }
+
+        BigInteger d = cryptoService.decodePrivateKey(user.getPrivateKey());
+        Entry entry = new Entry(user.getPrivateKey(), d.toByteArray(), now + ttlMillis);
+        synchronized (entries) {
+            Entry previous = entries.put(user.getId(), entry);
+            if (previous != null) {
+                previous.wipe();
+            }
+            purgeExpired(now);
+        }
+        return d;
+    }
+
+    public void invalidate(UUID userId) {
+        synchronized (entries) {
+            Entry entry = entries.remove(userId);
+            if (entry != null) {
+                entry.wipe();
+            }
+        }
+    }
+
+    // Caller holds the lock.
+    private void purgeExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.expiresAt <= now) {
+                entry.wipe();
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.User;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * LRU cache of decoded public points per user.
+ *
+ * Each cached Q carries its own fixed-base comb table, so encrypting for a hot
+ * patient skips both the X.509 parsing and most of the cost of rQ. Entries remember
+ * the encoded key they were built from: a user whose key changed is re-decoded on
+ * the next lookup even if nobody called {@link #invalidate(UUID)}.
+ */
+@Component
+public class PublicKeyCache {
+
+    private static class Entry {
+        final String encodedKey;
+        final ECPoint point;
+
+        Entry(String encodedKey, ECPoint point) {
+            this.encodedKey = encodedKey;
+            this.point = point;
+        }
+    }
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    private final Map<UUID, Entry> entries;
+
+    public PublicKeyCache(@Value("${crypto.public-key-cache.size:10000}") int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public ECPoint get(User user) throws Exception {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(user.getId());
+        }
+        if (entry != null && entry.encodedKey.equals(user.getPublicKey())) {
+            return entry.point;
+        }
+
+        // Decode and precompute outside the lock; a concurrent miss for the same user just does it twice
+        ECPoint point = cryptoService.decodePublicKey(user.getPublicKey());
+        FixedPointUtil.precompute(point);
+
+        synchronized (entries) {
+            entries.put(user.getId(), new Entry(user.getPublicKey(), point));
+        }
+        return point;
+    }
+
+    public void invalidate(UUID userId) {
+        synchronized (entries) {
+            entries.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.dto.RecordExportLine;
+import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.repository.MedicalRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * NDJSON export of stored records (backups, moving a patient's data elsewhere).
+ *
+ * Records are read through a forward-only JDBC cursor and each one is written as a
+ * {@link RecordExportLine} and detached before the next is fetched, so memory use does
+ * not depend on how many records are exported. Nothing is decrypted: every line carries
+ * the binary envelope under the patient's current key (legacy JSON rows and rows still
+ * behind a running key rotation are converted on the way out).
+ */
+@Service
+public class RecordExportService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public StreamingResponseBody exportByPatient(UUID patientId) {
+        return export(repository -> repository.streamByPatient(patientId));
+    }
+
+    public StreamingResponseBody exportByDoctorA(UUID doctorId) {
+        return export(repository -> repository.streamByDoctorA(doctorId));
+    }
+
+    // The body runs after the request thread has returned; the cursor needs its own transaction
+    private StreamingResponseBody export(Function<MedicalRecordRepository, Stream<MedicalRecord>> query) {
+        return out -> {
+            try {
+                transactionTemplate.execute(status -> {
+                    try (Stream<MedicalRecord> records = query.apply(medicalRecordRepository)) {
+                        Iterator<MedicalRecord> it = records.iterator();
+                        while (it.hasNext()) {
+                            MedicalRecord record = it.next();
+                            writeLine(out, record);
+                            entityManager.detach(record);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+    }
+
+    private void writeLine(OutputStream out, MedicalRecord record) throws IOException {
+        byte[] envelope = record.getEncryptedEnvelope() != null && record.getKeyVersion() == record.getPatient().getKeyVersion()
+                ? record.getEncryptedEnvelope()
+                : CiphertextEnvelope.encode(ciphertextStore.read(record));
+
+        // writeValueAsBytes rather than writeValue(out, ...), which would close the response stream
+        out.write(objectMapper.writeValueAsBytes(new RecordExportLine(record.getId(), record.getPatient().getId(),
+                record.getDoctorA().getId(), record.getDescription(), record.getCreatedAt(), envelope)));
+        out.write(NEWLINE);
+    }
+}
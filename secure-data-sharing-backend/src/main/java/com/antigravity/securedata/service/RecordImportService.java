@@ -0,0 +1,225 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.dto.CreateRecordRequest;
+import com.antigravity.securedata.dto.RecordImportResult;
+import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.model.User;
+import com.antigravity.securedata.repository.MedicalRecordRepository;
+import com.antigravity.securedata.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.bouncycastle.math.ec.ECPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Streaming bulk import of diagnoses for one Doctor A (migration from older systems).
+ *
+ * The body is read one line at a time, either NDJSON ({"patientId": ..., "diagnosis": ...})
+ * or CSV (patientId,diagnosis with an optional header row; the diagnosis may be quoted, but
+ * cannot span lines). Patients are resolved through a bounded LRU of users, encryption runs
+ * on cryptoExecutor with at most crypto.import.max-in-flight lines pending, and records are
+ * written crypto.import.chunk-size at a time, one transaction per chunk. Memory therefore stays
+ * flat however large the file is. A bad line is counted and reported, it does not abort the
+ * import; lines that were already written stay written.
+ */
+@Service
+public class RecordImportService {
+
+    private static class Pending {
+        final long line;
+        final User patient;
+        final CompletableFuture<CryptographyService.EncryptedRecord> ciphertext;
+
+        Pending(long line, User patient, CompletableFuture<CryptographyService.EncryptedRecord> ciphertext) {
+            this.line = line;
+            this.patient = patient;
+            this.ciphertext = ciphertext;
+        }
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    @Autowired
+    private PublicKeyCache publicKeyCache;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private ExecutorService cryptoExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Request-scoped under open-in-view; cleared after every chunk so imported records don't pile up in it
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${crypto.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${crypto.import.max-in-flight:256}")
+    private int maxInFlight;
+
+    @Value("${crypto.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    @Value("${crypto.import.patient-cache-size:10000}")
+    private int patientCacheSize;
+
+    public RecordImportResult importRecords(User doctorA, InputStream body, boolean csv) throws IOException {
+        RecordImportResult result = new RecordImportResult();
+        Map<UUID, User> patients = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, User> eldest) {
+                return size() > patientCacheSize;
+            }
+        };
+        Deque<Pending> pending = new ArrayDeque<>();
+        List<MedicalRecord> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (csv && lineNumber == 1 && line.startsWith("patientId"))) {
+                continue;
+            }
+
+            try {
+                CreateRecordRequest request = csv ? parseCsv(line) : objectMapper.readValue(line, CreateRecordRequest.class);
+                if (request.getPatientId() == null || request.getDiagnosis() == null) {
+                    throw new RuntimeException("patientId and diagnosis are required.");
+                }
+                User patient = patient(patients, UUID.fromString(request.getPatientId()));
+                ECPoint patientQ = publicKeyCache.get(patient);
+                String diagnosis = request.getDiagnosis();
+                pending.add(new Pending(lineNumber, patient,
+                        CompletableFuture.supplyAsync(() -> encrypt(diagnosis, patientQ), cryptoExecutor)));
+            } catch (Exception e) {
+                fail(result, lineNumber, e);
+            }
+
+            // Backpressure: stop reading until the oldest line has been encrypted
+            while (pending.size() >= maxInFlight) {
+                collect(pending.poll(), doctorA, chunk, result);
+            }
+            if (chunk.size() >= chunkSize) {
+                write(chunk, result);
+            }
+        }
+
+        while (!pending.isEmpty()) {
+            collect(pending.poll(), doctorA, chunk, result);
+            if (chunk.size() >= chunkSize) {
+                write(chunk, result);
+            }
+        }
+        write(chunk, result);
+        return result;
+    }
+
+    private CryptographyService.EncryptedRecord encrypt(String diagnosis, ECPoint patientQ) {
+        try {
+            return cryptoService.encryptData(diagnosis, patientQ);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private User patient(Map<UUID, User> patients, UUID patientId) {
+        User patient = patients.get(patientId);
+        if (patient == null) {
+            patient = userRepository.findById(patientId)
+                    .orElseThrow(() -> new RuntimeException("Patient not found"));
+            if (patient.getRole() != User.Role.PATIENT) {
+                throw new RuntimeException("User " + patientId + " is not a patient.");
+            }
+            patients.put(patientId, patient);
+        }
+        return patient;
+    }
+
+    private void collect(Pending next, User doctorA, List<MedicalRecord> chunk, RecordImportResult result) {
+        CryptographyService.EncryptedRecord ciphertext;
+        try {
+            ciphertext = next.ciphertext.join();
+        } catch (CompletionException e) {
+            fail(result, next.line, e.getCause() instanceof Exception cause ? cause : e);
+            return;
+        }
+
+        MedicalRecord record = new MedicalRecord();
+        record.setDoctorA(doctorA);
+        record.setPatient(next.patient);
+        ciphertextStore.write(record, ciphertext);
+        record.setDescription("Diagnosis by " + doctorA.getName());
+        chunk.add(record);
+    }
+
+    private void write(List<MedicalRecord> chunk, RecordImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        transactionTemplate.execute(status -> medicalRecordRepository.saveAll(chunk));
+        entityManager.clear();
+        result.setImported(result.getImported() + chunk.size());
+        chunk.clear();
+    }
+
+    private void fail(RecordImportResult result, long line, Exception e) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            result.getErrors().add(new RecordImportResult.LineError(line, message));
+        }
+    }
+
+    // patientId,diagnosis -- the diagnosis may be wrapped in double quotes, with "" for a literal quote
+    private static CreateRecordRequest parseCsv(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            throw new RuntimeException("Expected patientId,diagnosis");
+        }
+        String diagnosis = line.substring(comma + 1).trim();
+        if (diagnosis.length() >= 2 && diagnosis.startsWith("\"") && diagnosis.endsWith("\"")) {
+            diagnosis = diagnosis.substring(1, diagnosis.length() - 1).replace("\"\"", "\"");
+        }
+
+        CreateRecordRequest request = new CreateRecordRequest();
+        request.setPatientId(line.substring(0, comma).trim());
+        request.setDiagnosis(diagnosis);
+        return request;
+    }
+}
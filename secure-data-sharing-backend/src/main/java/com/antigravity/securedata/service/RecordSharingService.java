@@ -0,0 +1,192 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.model.SharedRecord;
+import com.antigravity.securedata.model.User;
+import com.antigravity.securedata.repository.MedicalRecordRepository;
+import com.antigravity.securedata.repository.SharedRecordRepository;
+import com.antigravity.securedata.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Proxy re-encryption for many records and many doctors at once.
+ *
+ * One rk is derived per (patient, doctor) pair, existing shares are filtered out with a
+ * single query, the C2 transforms run on the crypto executor and all new rows are
+ * written as one JDBC batch of insert-on-conflict statements. A pair shared concurrently
+ * by another request is skipped by the database instead of failing the whole batch, so
+ * sharing is idempotent and a retried share job never trips the unique constraint.
+ */
+@Service
+public class RecordSharingService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private SharedRecordRepository sharedRecordRepository;
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    @Autowired
+    private PrivateKeyCache privateKeyCache;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private ExecutorService cryptoExecutor;
+
+    @Autowired
+    private CryptoTasks cryptoTasks;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String INSERT_IF_ABSENT =
+            "insert into shared_records (id, original_record_id, doctor_b_id, re_encrypted_c2, shared_at) "
+            + "values (?, ?, ?, ?, ?) on conflict (original_record_id, doctor_b_id) do nothing";
+
+    /**
+     * Shares one record with one doctor as a single insert-on-conflict: no separate
+     * duplicate check, and two concurrent shares of the same pair cannot both succeed.
+     * Sharing an already shared pair returns the existing share.
+     */
+    @Transactional
+    public SharedRecord share(MedicalRecord record, User doctorB) throws Exception {
+        BigInteger rk = cryptoService.generateReEncryptionKey(privateKeyCache.get(record.getPatient()), privateKeyCache.get(doctorB));
+        CryptographyService.EncryptedRecord encRecord = ciphertextStore.read(record);
+        CryptographyService.EncryptedRecord reEncRecord = cryptoTasks.run(() -> cryptoService.reEncrypt(encRecord, rk));
+
+        SharedRecord shared = new SharedRecord();
+        shared.setId(UUID.randomUUID());
+        shared.setOriginalRecord(record);
+        shared.setDoctorB(doctorB);
+        ciphertextStore.write(shared, reEncRecord);
+
+        if (insertIfAbsent(List.of(shared)).isEmpty()) {
+            return sharedRecordRepository.findByOriginalRecordAndDoctorB(record, doctorB)
+                    .orElseThrow(() -> new RuntimeException("Share of this record could not be created."));
+        }
+        return shared;
+    }
+
+    /**
+     * Shares every record with every doctor. Pairs that are already shared (including ones
+     * shared concurrently) are skipped; the returned list contains only the newly created shares.
+     */
+    @Transactional
+    public List<SharedRecord> shareAll(List<UUID> recordIds, List<UUID> doctorIds) throws Exception {
+        Set<UUID> uniqueRecordIds = new LinkedHashSet<>(recordIds);
+        Set<UUID> uniqueDoctorIds = new LinkedHashSet<>(doctorIds);
+
+        List<MedicalRecord> records = medicalRecordRepository.findAllById(uniqueRecordIds);
+        if (records.size() != uniqueRecordIds.size()) {
+            throw new RuntimeException("Record not found");
+        }
+        List<User> doctors = userRepository.findAllById(uniqueDoctorIds);
+        if (doctors.size() != uniqueDoctorIds.size()) {
+            throw new RuntimeException("Doctor B not found");
+        }
+
+        // --- Duplicate Share Check (one query for the whole batch) ---
+        Set<String> alreadyShared = new HashSet<>();
+        for (SharedRecordRepository.SharePair pair : sharedRecordRepository.findSharedPairs(uniqueRecordIds, uniqueDoctorIds)) {
+            alreadyShared.add(pair.getRecordId() + ":" + pair.getDoctorId());
+        }
+
+        // --- Re-Encryption Keys (one per patient -> doctor pair) ---
+        Map<String, BigInteger> rks = new HashMap<>();
+        for (MedicalRecord record : records) {
+            User patient = record.getPatient();
+            for (User doctorB : doctors) {
+                String key = patient.getId() + ":" + doctorB.getId();
+                if (!rks.containsKey(key)) {
+                    rks.put(key, cryptoService.generateReEncryptionKey(privateKeyCache.get(patient), privateKeyCache.get(doctorB)));
+                }
+            }
+        }
+
+        // --- Group new shares by rk ---
+        Map<String, List<SharedRecord>> sharesByRk = new LinkedHashMap<>();
+        Map<String, List<CryptographyService.EncryptedRecord>> inputsByRk = new HashMap<>();
+        for (MedicalRecord record : records) {
+            CryptographyService.EncryptedRecord encRecord = ciphertextStore.read(record);
+            for (User doctorB : doctors) {
+                if (alreadyShared.contains(record.getId() + ":" + doctorB.getId())) {
+                    continue;
+                }
+                String key = record.getPatient().getId() + ":" + doctorB.getId();
+
+                SharedRecord shared = new SharedRecord();
+                shared.setId(UUID.randomUUID());
+                shared.setOriginalRecord(record);
+                shared.setDoctorB(doctorB);
+                sharesByRk.computeIfAbsent(key, k -> new ArrayList<>()).add(shared);
+                inputsByRk.computeIfAbsent(key, k -> new ArrayList<>()).add(encRecord);
+            }
+        }
+
+        // --- Proxy Transformation (parallel, in batches sharing one point normalization) ---
+        List<SharedRecord> shares = new ArrayList<>();
+        List<CompletableFuture<List<CryptographyService.EncryptedRecord>>> transforms = new ArrayList<>();
+        for (Map.Entry<String, List<SharedRecord>> group : sharesByRk.entrySet()) {
+            BigInteger rk = rks.get(group.getKey());
+            List<CryptographyService.EncryptedRecord> inputs = inputsByRk.get(group.getKey());
+            for (int from = 0; from < inputs.size(); from += CryptographyService.REENCRYPT_BATCH) {
+                List<CryptographyService.EncryptedRecord> batch =
+                        inputs.subList(from, Math.min(from + CryptographyService.REENCRYPT_BATCH, inputs.size()));
+                transforms.add(CompletableFuture.supplyAsync(() -> cryptoService.reEncryptAll(batch, rk), cryptoExecutor));
+            }
+            shares.addAll(group.getValue());
+        }
+
+        int next = 0;
+        for (CompletableFuture<List<CryptographyService.EncryptedRecord>> transform : transforms) {
+            for (CryptographyService.EncryptedRecord reEncRecord : transform.join()) {
+                ciphertextStore.write(shares.get(next++), reEncRecord);
+            }
+        }
+
+        return insertIfAbsent(shares);
+    }
+
+    // One JDBC batch; returns the shares whose row was actually inserted. Relies on per-statement
+    // update counts (0 on conflict), which pgjdbc reports unless reWriteBatchedInserts is enabled.
+    private List<SharedRecord> insertIfAbsent(List<SharedRecord> shares) {
+        List<Object[]> rows = new ArrayList<>(shares.size());
+        for (SharedRecord shared : shares) {
+            rows.add(new Object[]{shared.getId(), shared.getOriginalRecord().getId(), shared.getDoctorB().getId(),
+                    shared.getReEncryptedC2(), shared.getSharedAt()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, rows);
+
+        List<SharedRecord> inserted = new ArrayList<>(shares.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted.add(shares.get(i));
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,86 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.MedicalRecord;
+import com.antigravity.securedata.model.ShareGrant;
+import com.antigravity.securedata.model.User;
+import com.antigravity.securedata.repository.ShareGrantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigInteger;
+
+/**
+ * Lazy proxy re-encryption.
+ *
+ * Granting stores the patient -> doctor rk once (one row, whatever the size of the
+ * history). Records are transformed for the doctor only when read, via
+ * {@link CryptographyService#reEncrypt}, with the result cached briefly in
+ * {@link TransformedC2Cache}. A grant covers records created after it as well.
+ */
+@Service
+public class ShareGrantService {
+
+    @Autowired
+    private ShareGrantRepository shareGrantRepository;
+
+    @Autowired
+    private CryptographyService cryptoService;
+
+    @Autowired
+    private PrivateKeyCache privateKeyCache;
+
+    @Autowired
+    private CiphertextStore ciphertextStore;
+
+    @Autowired
+    private TransformedC2Cache transformedC2Cache;
+
+    // Idempotent: granting twice returns the existing grant
+    @Transactional
+    public ShareGrant grant(User patient, User doctorB) throws Exception {
+        ShareGrant existing = shareGrantRepository.findByPatientAndDoctorB(patient, doctorB).orElse(null);
+        if (existing != null) {
+            return existing;
+        }
+
+        BigInteger rk = cryptoService.generateReEncryptionKey(privateKeyCache.get(patient), privateKeyCache.get(doctorB));
+
+        ShareGrant grant = new ShareGrant();
+        grant.setPatient(patient);
+        grant.setDoctorB(doctorB);
+        grant.setReEncryptionKey(rk.toByteArray());
+        return shareGrantRepository.save(grant);
+    }
+
+    @Transactional
+    public void revoke(User patient, User doctorB) {
+        shareGrantRepository.findByPatientAndDoctorB(patient, doctorB).ifPresent(shareGrantRepository::delete);
+        transformedC2Cache.invalidate(patient.getId(), doctorB.getId());
+    }
+
+    /**
+     * Returns the record's ciphertext transformed for doctorB, if the record's patient has
+     * granted that doctor access.
+     */
+    public CryptographyService.EncryptedRecord transformFor(MedicalRecord record, User doctorB) throws Exception {
+        User patient = record.getPatient();
+        ShareGrant grant = shareGrantRepository.findByPatientAndDoctorB(patient, doctorB)
+                .orElseThrow(() -> new RuntimeException("Access to this record has not been granted."));
+
+        // A hit needs only C1, IV and payload, which a key rotation never changes, so the record
+        // is taken as stored: the rotation transform is skipped along with the grant's. The cached
+        // C2 (sG + d_B*C1) does not depend on the patient's key version either.
+        byte[] c2 = transformedC2Cache.get(patient.getId(), doctorB.getId(), record.getId());
+        if (c2 != null) {
+            CryptographyService.EncryptedRecord transformed = ciphertextStore.readStored(record);
+            transformed.c2 = c2;
+            return transformed;
+        }
+
+        CryptographyService.EncryptedRecord original = ciphertextStore.read(record);
+        CryptographyService.EncryptedRecord transformed = cryptoService.reEncrypt(original, new BigInteger(1, grant.getReEncryptionKey()));
+        transformedC2Cache.put(patient.getId(), doctorB.getId(), record.getId(), transformed.c2);
+        return transformed;
+    }
+}
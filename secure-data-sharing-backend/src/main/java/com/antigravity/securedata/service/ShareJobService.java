@@ -0,0 +1,163 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.ShareJob;
+import com.antigravity.securedata.model.SharedRecord;
+import com.antigravity.securedata.repository.ShareJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous batch sharing backed by the share_jobs table.
+ *
+ * submit() only inserts a row, so the request returns immediately. A poller claims due
+ * jobs with FOR UPDATE SKIP LOCKED (safe across instances) and hands them to a small
+ * worker pool, which runs {@link RecordSharingService#shareAll}. A claimed job holds a
+ * lease, which this instance renews while the worker is still running: if the instance
+ * dies, the job becomes due again when the lease runs out.
+ *
+ * A claim is identified by the job's attempt number. Lease renewals and the final status
+ * update are conditional on the job still being RUNNING under that attempt. A worker whose
+ * lease expired (for example after a long GC pause) and whose job was claimed again can
+ * therefore neither extend the new claim nor overwrite its outcome.
+ * Failures are retried with exponential backoff up to share.jobs.max-attempts. Re-running
+ * a job is harmless because shareAll skips pairs that are already shared (insert-on-conflict,
+ * so not even a concurrent duplicate can fail it).
+ */
+@Service
+public class ShareJobService {
+
+    @Autowired
+    private ShareJobRepository shareJobRepository;
+
+    @Autowired
+    private RecordSharingService recordSharingService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Jobs processed concurrently; each one already fans its crypto out over cryptoExecutor
+    @Value("${share.jobs.workers:2}")
+    private int workers;
+
+    @Value("${share.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${share.jobs.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${share.jobs.retry-backoff-seconds:10}")
+    private long retryBackoffSeconds;
+
+    private ExecutorService workerPool;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Jobs this instance is running, with the attempt they were claimed under
+    private final Map<UUID, Integer> running = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "share-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerPool.shutdown();
+    }
+
+    public ShareJob submit(List<UUID> recordIds, List<UUID> doctorIds) {
+        ShareJob job = new ShareJob();
+        job.setRecordIds(recordIds);
+        job.setDoctorIds(doctorIds);
+        return shareJobRepository.save(job);
+    }
+
+    @Scheduled(fixedDelayString = "${share.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        int free = workers - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+
+        List<ShareJob> claimed = transactionTemplate.execute(status -> {
+            List<ShareJob> jobs = shareJobRepository.lockDueJobs(free);
+            LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(leaseSeconds);
+            for (ShareJob job : jobs) {
+                job.setStatus(ShareJob.Status.RUNNING);
+                job.setAttempts(job.getAttempts() + 1);
+                job.setNextAttemptAt(leaseUntil);
+            }
+            return shareJobRepository.saveAll(jobs);
+        });
+
+        for (ShareJob job : claimed) {
+            inFlight.incrementAndGet();
+            running.put(job.getId(), job.getAttempts());
+            workerPool.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    running.remove(job.getId());
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    // Keeps the leases of this instance's running jobs from expiring under a long shareAll
+    @Scheduled(fixedDelayString = "${share.jobs.lease-renew-interval-ms:60000}")
+    public void renewLeases() {
+        for (Map.Entry<UUID, Integer> claim : running.entrySet()) {
+            LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(leaseSeconds);
+            int renewed = transactionTemplate.execute(status ->
+                    shareJobRepository.renewLease(claim.getKey(), claim.getValue(), leaseUntil));
+            if (renewed == 0) {
+                System.out.println("Share job " + claim.getKey() + " lost its claim; its result will be discarded");
+            }
+        }
+    }
+
+    private void run(ShareJob job) {
+        List<SharedRecord> created;
+        try {
+            created = recordSharingService.shareAll(job.getRecordIds(), job.getDoctorIds());
+        } catch (Exception e) {
+            if (job.getAttempts() >= maxAttempts) {
+                finish(job, ShareJob.Status.FAILED, null, e.getMessage(), job.getNextAttemptAt(), LocalDateTime.now());
+            } else {
+                // 10s, 20s, 40s, ... with the default backoff
+                long delay = retryBackoffSeconds << Math.min(job.getAttempts() - 1, 20);
+                finish(job, ShareJob.Status.PENDING, null, e.getMessage(), LocalDateTime.now().plusSeconds(delay), null);
+            }
+            return;
+        }
+        finish(job, ShareJob.Status.DONE, created.size(), null, job.getNextAttemptAt(), LocalDateTime.now());
+    }
+
+    private void finish(ShareJob job, ShareJob.Status status, Integer sharesCreated, String lastError,
+                        LocalDateTime nextAttemptAt, LocalDateTime completedAt) {
+        int updated = transactionTemplate.execute(tx -> shareJobRepository.finishAttempt(
+                job.getId(), job.getAttempts(), status, sharesCreated, lastError, nextAttemptAt, completedAt));
+        if (updated == 0) {
+            // Re-claimed after the lease ran out; the newer attempt owns the row
+            System.out.println("Share job " + job.getId() + " attempt " + job.getAttempts() + " was superseded; result discarded");
+        }
+    }
+}
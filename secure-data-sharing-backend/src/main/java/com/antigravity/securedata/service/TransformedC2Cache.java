@@ -0,0 +1,77 @@
+package com.antigravity.securedata.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Short-lived cache of C2 points already transformed for a granted doctor.
+ *
+ * With grants the proxy transform runs at read time; this keeps repeated views of the
+ * same record (dashboard refreshes, list-then-decrypt) from redoing the rk * C1
+ * multiplication. Bounded LRU with a TTL, keyed by patient, doctor and record.
+ */
+@Component
+public class TransformedC2Cache {
+
+    private static class Entry {
+        final byte[] c2;
+        final long expiresAt;
+
+        Entry(byte[] c2, long expiresAt) {
+            this.c2 = c2;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> entries;
+    private final long ttlMillis;
+
+    public TransformedC2Cache(@Value("${crypto.transformed-c2-cache.size:10000}") int maxEntries,
+                              @Value("${crypto.transformed-c2-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public byte[] get(UUID patientId, UUID doctorId, UUID recordId) {
+        String key = key(patientId, doctorId) + recordId;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.c2;
+        }
+    }
+
+    public void put(UUID patientId, UUID doctorId, UUID recordId, byte[] c2) {
+        Entry entry = new Entry(c2, System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key(patientId, doctorId) + recordId, entry);
+        }
+    }
+
+    // Drop every transformed point for a grant, e.g. when it is revoked or its rk changes
+    public void invalidate(UUID patientId, UUID doctorId) {
+        String prefix = key(patientId, doctorId);
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private static String key(UUID patientId, UUID doctorId) {
+        return patientId + ":" + doctorId + ":";
+    }
+}
@@ -0,0 +1,27 @@
+-- Schema as originally generated by ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and skip it.
+
+CREATE TABLE users (
+    id          uuid         NOT NULL PRIMARY KEY,
+    name        varchar(255) NOT NULL,
+    role        varchar(255) NOT NULL CHECK (role IN ('PATIENT', 'DOCTOR_A', 'DOCTOR_B')),
+    public_key  text,
+    private_key text
+);
+
+CREATE TABLE medical_records (
+    id             uuid         NOT NULL PRIMARY KEY,
+    patient_id     uuid         NOT NULL REFERENCES users (id),
+    doctor_a_id    uuid         NOT NULL REFERENCES users (id),
+    encrypted_data text         NOT NULL,
+    created_at     timestamp(6) NOT NULL,
+    description    varchar(255)
+);
+
+CREATE TABLE shared_records (
+    id                 uuid         NOT NULL PRIMARY KEY,
+    original_record_id uuid         NOT NULL REFERENCES medical_records (id),
+    doctor_b_id        uuid         NOT NULL REFERENCES users (id),
+    re_encrypted_data  text         NOT NULL,
+    shared_at          timestamp(6) NOT NULL
+);
@@ -0,0 +1,38 @@
+-- Catches baselined databases up with everything ddl-auto added after the original schema,
+-- then adds the indexes behind the hot queries. IF NOT EXISTS throughout: columns and tables
+-- may already have been created by ddl-auto.
+
+-- Binary ciphertext envelopes; the legacy JSON columns become optional
+ALTER TABLE medical_records ADD COLUMN IF NOT EXISTS encrypted_envelope bytea;
+ALTER TABLE medical_records ALTER COLUMN encrypted_data DROP NOT NULL;
+ALTER TABLE shared_records ADD COLUMN IF NOT EXISTS re_encrypted_envelope bytea;
+ALTER TABLE shared_records ADD COLUMN IF NOT EXISTS re_encrypted_c2 bytea;
+ALTER TABLE shared_records ALTER COLUMN re_encrypted_data DROP NOT NULL;
+
+-- Patient -> Doctor B grants
+CREATE TABLE IF NOT EXISTS share_grants (
+    id                uuid         NOT NULL PRIMARY KEY,
+    patient_id        uuid         NOT NULL REFERENCES users (id),
+    doctor_b_id       uuid         NOT NULL REFERENCES users (id),
+    re_encryption_key bytea        NOT NULL,
+    granted_at        timestamp(6) NOT NULL,
+    UNIQUE (patient_id, doctor_b_id)
+);
+
+-- findByPatient / keyset pages of a patient's records, newest first
+CREATE INDEX IF NOT EXISTS idx_medical_records_patient_created ON medical_records (patient_id, created_at, id);
+-- findByDoctorA
+CREATE INDEX IF NOT EXISTS idx_medical_records_doctor_a_created ON medical_records (doctor_a_id, created_at);
+-- findByDoctorB / keyset pages of a doctor's shares, newest first
+CREATE INDEX IF NOT EXISTS idx_shared_records_doctor_shared ON shared_records (doctor_b_id, shared_at, id);
+-- findGrantedTo / grants held by a doctor
+CREATE INDEX IF NOT EXISTS idx_share_grants_doctor_b ON share_grants (doctor_b_id);
+
+-- One share per (record, doctor). Duplicates left by the old exists-then-insert race are
+-- removed first, keeping the earliest share of each pair.
+DELETE FROM shared_records s
+USING shared_records t
+WHERE s.original_record_id = t.original_record_id
+  AND s.doctor_b_id = t.doctor_b_id
+  AND (s.shared_at, s.id) > (t.shared_at, t.id);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_shared_records_record_doctor ON shared_records (original_record_id, doctor_b_id);
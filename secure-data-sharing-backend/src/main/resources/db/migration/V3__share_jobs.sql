@@ -0,0 +1,16 @@
+-- Durable queue for batch shares (see ShareJobService)
+CREATE TABLE share_jobs (
+    id              uuid         NOT NULL PRIMARY KEY,
+    record_ids      text         NOT NULL,
+    doctor_ids      text         NOT NULL,
+    status          varchar(255) NOT NULL CHECK (status IN ('PENDING', 'RUNNING', 'DONE', 'FAILED')),
+    attempts        integer      NOT NULL,
+    next_attempt_at timestamp(6) NOT NULL,
+    shares_created  integer,
+    last_error      text,
+    created_at      timestamp(6) NOT NULL,
+    completed_at    timestamp(6)
+);
+
+-- lockDueJobs: only unfinished jobs are indexed
+CREATE INDEX idx_share_jobs_due ON share_jobs (next_attempt_at, created_at) WHERE status IN ('PENDING', 'RUNNING');
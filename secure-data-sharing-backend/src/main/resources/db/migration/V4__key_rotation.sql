@@ -0,0 +1,19 @@
+-- Key versions for patient key rotation (see KeyRotationService)
+ALTER TABLE users ADD COLUMN key_version integer NOT NULL DEFAULT 0;
+ALTER TABLE medical_records ADD COLUMN key_version integer NOT NULL DEFAULT 0;
+
+CREATE TABLE key_rotation_jobs (
+    id              uuid         NOT NULL PRIMARY KEY,
+    user_id         uuid         NOT NULL REFERENCES users (id),
+    from_version    integer      NOT NULL,
+    to_version      integer      NOT NULL,
+    rotation_key    bytea        NOT NULL,
+    status          varchar(255) NOT NULL CHECK (status IN ('RUNNING', 'DONE')),
+    records_rotated bigint       NOT NULL,
+    started_at      timestamp(6) NOT NULL,
+    completed_at    timestamp(6),
+    UNIQUE (user_id, from_version)
+);
+
+-- lockForRotation
+CREATE INDEX idx_medical_records_patient_key_version ON medical_records (patient_id, key_version);
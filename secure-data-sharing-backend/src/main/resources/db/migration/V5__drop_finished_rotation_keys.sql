@@ -0,0 +1,6 @@
+-- A finished key rotation no longer keeps its rotation key (see KeyRotationService)
+ALTER TABLE key_rotation_jobs ALTER COLUMN rotation_key DROP NOT NULL;
+
+UPDATE key_rotation_jobs j SET rotation_key = NULL
+WHERE j.status = 'DONE'
+  AND NOT EXISTS (SELECT 1 FROM medical_records r WHERE r.patient_id = j.user_id AND r.key_version < j.to_version);
@@ -0,0 +1,37 @@
+package com.antigravity.securedata.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AesKeyCacheTest {
+
+    private static byte[] expected(int s) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(String.valueOf(s).getBytes());
+        return Arrays.copyOf(digest, 16);
+    }
+
+    @Test
+    void cachedAndUncachedKeysMatchTheDerivation() throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        AesKeyCache cache = new AesKeyCache(100);
+
+        for (int s : new int[]{0, 1, 42, 99, 100, 99999}) {
+            assertArrayEquals(expected(s), cache.get(s, sha256).getEncoded(), "s = " + s);
+        }
+        assertArrayEquals(expected(7), new AesKeyCache(0).get(7, sha256).getEncoded(), "s = 7");
+    }
+
+    @Test
+    void slotIsReusedOnceFilled() throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        AesKeyCache cache = new AesKeyCache(10);
+        SecretKeySpec first = cache.get(3, sha256);
+        assertSame(first, cache.get(3, sha256));
+    }
+}
@@ -0,0 +1,155 @@
+package com.antigravity.securedata.service;
+
+import com.antigravity.securedata.model.MedicalRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bouncycastle.math.ec.ECPoint;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Envelopes of both versions must round-trip byte for byte, legacy JSON rows must stay
+ * readable, and a damaged column must be rejected with IllegalArgumentException rather
+ * than an underflow or a huge allocation.
+ */
+class CiphertextEnvelopeTest {
+
+    private static CryptographyService cryptoService;
+    private static ECPoint Q;
+    private static BigInteger d;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        cryptoService = new CryptographyService();
+        cryptoService.init();
+        KeyPair keys = cryptoService.generateKeyPair();
+        Q = cryptoService.decodePublicKey(cryptoService.encodePublicKey(keys.getPublic()));
+        d = cryptoService.decodePrivateKey(cryptoService.encodePrivateKey(keys.getPrivate()));
+    }
+
+    private static CryptographyService.EncryptedRecord encrypt(String data, boolean legacyCbc) throws Exception {
+        ReflectionTestUtils.setField(cryptoService, "legacyCbc", legacyCbc);
+        try {
+            return cryptoService.encryptData(data, Q);
+        } finally {
+            ReflectionTestUtils.setField(cryptoService, "legacyCbc", false);
+        }
+    }
+
+    private static void assertSameRecord(CryptographyService.EncryptedRecord expected, CryptographyService.EncryptedRecord actual) {
+        assertEquals(expected.scheme, actual.scheme);
+        assertArrayEquals(expected.c1, actual.c1);
+        assertArrayEquals(expected.c2, actual.c2);
+        assertArrayEquals(expected.iv, actual.iv);
+        assertArrayEquals(expected.encryptedData, actual.encryptedData);
+    }
+
+    @Test
+    void cbcRecordsUseVersionOne() throws Exception {
+        CryptographyService.EncryptedRecord record = encrypt("Diagnosis: Flu", true);
+        byte[] envelope = CiphertextEnvelope.encode(record);
+
+        assertEquals(1, envelope[3]);
+        CryptographyService.EncryptedRecord decoded = CiphertextEnvelope.decode(envelope);
+        assertSameRecord(record, decoded);
+        assertArrayEquals(envelope, CiphertextEnvelope.encode(decoded));
+        assertEquals("Diagnosis: Flu", cryptoService.decryptData(decoded, d));
+    }
+
+    @Test
+    void gcmRecordsUseVersionTwo() throws Exception {
+        for (String data : new String[]{"Diagnosis: Flu", "Follow-up in two weeks. ".repeat(40)}) {
+            CryptographyService.EncryptedRecord record = encrypt(data, false);
+            byte[] envelope = CiphertextEnvelope.encode(record);
+
+            assertEquals(2, envelope[3]);
+            assertEquals(record.scheme, envelope[4]);
+            CryptographyService.EncryptedRecord decoded = CiphertextEnvelope.decode(envelope);
+            assertSameRecord(record, decoded);
+            assertArrayEquals(envelope, CiphertextEnvelope.encode(decoded));
+            assertEquals(data, cryptoService.decryptData(decoded, d));
+        }
+    }
+
+    @Test
+    void readsLegacyJsonRow() throws Exception {
+        // What rows written before the envelope hold: Base64 fields, no scheme, AES-CBC payload
+        CryptographyService.EncryptedRecord record = encrypt("Diagnosis: Flu", true);
+        Base64.Encoder base64 = Base64.getEncoder();
+        String json = "{\"c1\":\"" + base64.encodeToString(record.c1) + "\",\"c2\":\"" + base64.encodeToString(record.c2)
+                + "\",\"encryptedData\":\"" + base64.encodeToString(record.encryptedData)
+                + "\",\"iv\":\"" + base64.encodeToString(record.iv) + "\"}";
+        MedicalRecord row = new MedicalRecord();
+        row.setEncryptedData(json);
+
+        CiphertextStore store = new CiphertextStore(100, 300);
+        ReflectionTestUtils.setField(store, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(store, "cryptoService", cryptoService);
+        CryptographyService.EncryptedRecord read = store.readStored(row);
+
+        assertSameRecord(record, read);
+        assertEquals("Diagnosis: Flu", cryptoService.decryptData(read, d));
+        assertEquals(1, CiphertextEnvelope.encode(read)[3]);
+    }
+
+    @Test
+    void rejectsEveryTruncation() throws Exception {
+        for (boolean legacyCbc : new boolean[]{true, false}) {
+            byte[] envelope = CiphertextEnvelope.encode(encrypt("Diagnosis: Flu", legacyCbc));
+            for (int length = 0; length < envelope.length; length++) {
+                byte[] truncated = Arrays.copyOf(envelope, length);
+                assertThrows(IllegalArgumentException.class, () -> CiphertextEnvelope.decode(truncated), "length " + length);
+            }
+        }
+    }
+
+    @Test
+    void rejectsTrailingBytes() throws Exception {
+        byte[] envelope = CiphertextEnvelope.encode(encrypt("Diagnosis: Flu", false));
+        assertThrows(IllegalArgumentException.class, () -> CiphertextEnvelope.decode(Arrays.copyOf(envelope, envelope.length + 1)));
+    }
+
+    @Test
+    void rejectsCorruptLengths() throws Exception {
+        byte[] envelope = CiphertextEnvelope.encode(encrypt("Diagnosis: Flu", false));
+        int ivLengthAt = 5 + 2 * 33;
+        int dataLengthAt = ivLengthAt + 1 + envelope[ivLengthAt];
+
+        for (int ivLength : new int[]{0, 17, 255}) {
+            byte[] corrupt = envelope.clone();
+            corrupt[ivLengthAt] = (byte) ivLength;
+            assertThrows(IllegalArgumentException.class, () -> CiphertextEnvelope.decode(corrupt), "iv length " + ivLength);
+        }
+        for (int dataLength : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1 << 30}) {
+            byte[] corrupt = envelope.clone();
+            ByteBuffer.wrap(corrupt).putInt(dataLengthAt, dataLength);
+            assertThrows(IllegalArgumentException.class, () -> CiphertextEnvelope.decode(corrupt), "data length " + dataLength);
+        }
+    }
+
+    @Test
+    void rejectsUnknownVersionAndScheme() throws Exception {
+        byte[] envelope = CiphertextEnvelope.encode(encrypt("Diagnosis: Flu", false));
+
+        byte[] version = envelope.clone();
+        version[3] = 3;
+        assertThrows(IllegalArgumentException.class, () -> CiphertextEnvelope.decode(version));
+
+        for (byte scheme : new byte[]{PayloadCipher.AES_CBC, 3, -1}) {
+            byte[] corrupt = envelope.clone();
+            corrupt[4] = scheme;
+            assertThrows(IllegalArgumentException.class, () -> CiphertextEnvelope.decode(corrupt), "scheme " + scheme);
+        }
+        assertThrows(IllegalArgumentException.class, () -> CiphertextEnvelope.decode(new byte[]{'P', 'R', 'E'}));
+    }
+}
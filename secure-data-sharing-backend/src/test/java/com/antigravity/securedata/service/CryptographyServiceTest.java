@@ -0,0 +1,127 @@
+package com.antigravity.securedata.service;
+
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.spec.ECParameterSpec;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The fixed-base comb multiplier used by encryptData must produce exactly the points
+ * the plain G.multiply path did, or records written before and after it would not
+ * decrypt alike. Likewise the batched reEncryptAll must match reEncrypt record for record.
+ */
+class CryptographyServiceTest {
+
+    private static ECParameterSpec spec;
+    private static ECPoint G;
+    private static ECMultiplier comb;
+
+    @BeforeAll
+    static void setup() {
+        spec = ECNamedCurveTable.getParameterSpec("secp256k1");
+        G = spec.getG();
+        FixedPointUtil.precompute(G);
+        comb = new FixedPointCombMultiplier();
+    }
+
+    private static void assertSameMultiple(BigInteger k) {
+        assertArrayEquals(G.multiply(k).getEncoded(true), comb.multiply(G, k).getEncoded(true), "k = " + k);
+    }
+
+    @Test
+    void combMatchesMultiplyForRandomNonces() {
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < 1000; i++) {
+            assertSameMultiple(new BigInteger(256, random).mod(spec.getN()));
+        }
+    }
+
+    @Test
+    void combMatchesMultiplyAtBoundaries() {
+        assertSameMultiple(BigInteger.ONE);
+        assertSameMultiple(BigInteger.TWO);
+        assertSameMultiple(spec.getN().subtract(BigInteger.ONE));
+        assertSameMultiple(spec.getN().subtract(BigInteger.TWO));
+    }
+
+    @Test
+    void combMatchesMultiplyForEveryScalar() {
+        for (int s = 0; s < CryptographyService.MAX_S; s++) {
+            assertSameMultiple(BigInteger.valueOf(s));
+        }
+    }
+
+    @Test
+    void encryptDecryptRoundTrip() throws Exception {
+        CryptographyService cryptoService = new CryptographyService();
+        cryptoService.init();
+        KeyPair keys = cryptoService.generateKeyPair();
+        ECPoint Q = cryptoService.decodePublicKey(cryptoService.encodePublicKey(keys.getPublic()));
+        BigInteger d = cryptoService.decodePrivateKey(cryptoService.encodePrivateKey(keys.getPrivate()));
+
+        for (String diagnosis : new String[]{"", "Diagnosis: Flu", "Fièvre 39°C, suivi à J+7", "x".repeat(20000)}) {
+            assertEquals(diagnosis, cryptoService.decryptData(cryptoService.encryptData(diagnosis, Q), d));
+            assertEquals(diagnosis, cryptoService.decryptData(cryptoService.encryptData(diagnosis, null, keys.getPublic()), keys.getPrivate()));
+        }
+    }
+
+    private static void assertSameReEncryption(CryptographyService cryptoService, List<CryptographyService.EncryptedRecord> records,
+                                               BigInteger rk) {
+        List<CryptographyService.EncryptedRecord> batch = cryptoService.reEncryptAll(records, rk);
+        assertEquals(records.size(), batch.size());
+        for (int i = 0; i < records.size(); i++) {
+            CryptographyService.EncryptedRecord single = cryptoService.reEncrypt(records.get(i), rk);
+            assertArrayEquals(single.c1, batch.get(i).c1, "c1 of record " + i);
+            assertArrayEquals(single.c2, batch.get(i).c2, "c2 of record " + i);
+            assertArrayEquals(single.iv, batch.get(i).iv, "iv of record " + i);
+            assertArrayEquals(single.encryptedData, batch.get(i).encryptedData, "payload of record " + i);
+            assertEquals(single.scheme, batch.get(i).scheme);
+        }
+    }
+
+    @Test
+    void reEncryptAllMatchesReEncrypt() throws Exception {
+        CryptographyService cryptoService = new CryptographyService();
+        cryptoService.init();
+        KeyPair patient = cryptoService.generateKeyPair();
+        KeyPair doctor = cryptoService.generateKeyPair();
+        BigInteger rk = cryptoService.generateReEncryptionKey(patient.getPrivate(), doctor.getPrivate());
+
+        List<CryptographyService.EncryptedRecord> records = new ArrayList<>();
+        for (int i = 0; i < CryptographyService.REENCRYPT_BATCH; i++) {
+            records.add(cryptoService.encryptData("Record " + i, null, patient.getPublic()));
+        }
+        assertSameReEncryption(cryptoService, records, rk);
+        assertSameReEncryption(cryptoService, records.subList(0, 1), rk);
+        assertSameReEncryption(cryptoService, records, BigInteger.ZERO);
+        assertTrue(cryptoService.reEncryptAll(List.of(), rk).isEmpty());
+
+        // C1 at infinity (encoded as a single 0 byte) leaves C2 unchanged, mixed in with normal records
+        CryptographyService.EncryptedRecord atInfinity = cryptoService.encryptData("C1 = O", null, patient.getPublic());
+        atInfinity.c1 = cryptoService.encodePoint(G.getCurve().getInfinity());
+        // and a C2 that the transform sends to infinity: C2 = -rk*C1
+        CryptographyService.EncryptedRecord toInfinity = cryptoService.encryptData("C2' = O", null, patient.getPublic());
+        toInfinity.c2 = cryptoService.encodePoint(cryptoService.decodePoint(toInfinity.c1).multiply(rk).negate());
+
+        List<CryptographyService.EncryptedRecord> mixed = new ArrayList<>(records.subList(0, 8));
+        mixed.add(3, atInfinity);
+        mixed.add(toInfinity);
+        assertSameReEncryption(cryptoService, mixed, rk);
+        assertArrayEquals(atInfinity.c2, cryptoService.reEncryptAll(List.of(atInfinity), rk).get(0).c2);
+        assertArrayEquals(new byte[]{0}, cryptoService.reEncryptAll(List.of(toInfinity), rk).get(0).c2);
+    }
+}
@@ -0,0 +1,104 @@
+package com.antigravity.securedata.service;
+
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The baby-step/giant-step solver must recover exactly the s the old linear scan
+ * found, across the giant-step boundaries, and must not accept a key match that is
+ * not actually the looked-up point.
+ */
+class DiscreteLogSolverTest {
+
+    private static final int MAX_S = CryptographyService.MAX_S;
+
+    private static ECPoint G;
+    private static DiscreteLogSolver solver;
+    private static int m;
+
+    @BeforeAll
+    static void setup() {
+        G = ECNamedCurveTable.getParameterSpec("secp256k1").getG();
+        FixedPointUtil.precompute(G);
+        solver = new DiscreteLogSolver(G, MAX_S);
+        m = solver.getBabySteps();
+    }
+
+    private static ECPoint times(long s) {
+        return G.multiply(BigInteger.valueOf(s));
+    }
+
+    // The search decryptData did before the solver existed
+    private static int linearScan(ECPoint sG) {
+        ECPoint normalized = sG.normalize();
+        ECPoint temp = G.getCurve().getInfinity();
+        for (int i = 0; i < MAX_S; i++) {
+            if (temp.equals(normalized)) {
+                return i;
+            }
+            temp = temp.add(G).normalize();
+        }
+        return -1;
+    }
+
+    @Test
+    void solvesAroundGiantStepBoundaries() {
+        int[] scalars = {0, 1, m - 1, m, m + 1, 2 * m - 1, 2 * m, 2 * m + 1, 7 * m, (MAX_S / m) * m, MAX_S - 1};
+        for (int s : scalars) {
+            assertEquals(s, solver.solve(times(s)), "s = " + s);
+        }
+    }
+
+    @Test
+    void solvesEveryMultipleOfBabySteps() {
+        for (int s = 0; s < MAX_S; s += m) {
+            assertEquals(s, solver.solve(times(s)), "s = " + s);
+        }
+    }
+
+    @Test
+    void returnsMinusOneOutsideRange() {
+        assertEquals(-1, solver.solve(times(123456789L)));
+        assertEquals(-1, solver.solve(times(1).negate()));
+        assertEquals(-1, solver.solve(times((long) (solver.getGiantSteps() + 1) * m + 1)));
+    }
+
+    @Test
+    void matchesLinearScanForRandomScalars() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            int s = random.nextInt(MAX_S);
+            assertEquals(s, solver.solve(times(s)), "s = " + s);
+        }
+        // The linear scan walks up to MAX_S points per call, so only a few are compared against it
+        for (int i = 0; i < 5; i++) {
+            ECPoint sG = times(random.nextInt(MAX_S));
+            assertEquals(linearScan(sG), solver.solve(sG));
+        }
+    }
+
+    @Test
+    void rejectsKeyCollision() {
+        // A table whose slot for some point outside the range claims it is 5G, which is what a
+        // truncated-key collision looks like to the lookup
+        int babySteps = 64;
+        ByteBuffer table = ByteBuffer.allocate(DiscreteLogSolver.capacityFor(babySteps) * DiscreteLogSolver.SLOT_BYTES);
+        DiscreteLogSolver.fill(G, babySteps, table);
+        ECPoint forged = times(987654321L).normalize();
+        DiscreteLogSolver.put(table, DiscreteLogSolver.capacityFor(babySteps) - 1, DiscreteLogSolver.key(forged), 5);
+
+        DiscreteLogSolver forgedSolver = new DiscreteLogSolver(G, 1000, babySteps, table);
+        assertEquals(-1, forgedSolver.solve(forged));
+        assertEquals(5, forgedSolver.solve(times(5)));
+        assertEquals(3 * babySteps + 5, forgedSolver.solve(times(3 * babySteps + 5)));
+    }
+}
@@ -0,0 +1,140 @@
+package com.antigravity.securedata.service;
+
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.math.ec.ECPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A persisted baby-step table must come back exactly as generated, and any file that
+ * does not match (truncated, bad CRC, other parameters) must be regenerated rather
+ * than used.
+ */
+class DiscreteLogTableFileTest {
+
+    private static final int MAX_S = 10000;
+    private static final int BABY_STEPS = 100;
+
+    private static ECPoint G;
+    private static ByteBuffer expected;
+
+    private Path dir;
+    private Path file;
+
+    @BeforeAll
+    static void setup() {
+        G = ECNamedCurveTable.getParameterSpec("secp256k1").getG();
+        expected = ByteBuffer.allocate(DiscreteLogSolver.capacityFor(BABY_STEPS) * DiscreteLogSolver.SLOT_BYTES);
+        DiscreteLogSolver.fill(G, BABY_STEPS, expected);
+    }
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("dlog-test");
+        file = dir.resolve("dlog.bin");
+    }
+
+    @AfterEach
+    void deleteDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private ByteBuffer open(ECPoint generator, int maxScalar, boolean verifyChecksum) throws IOException {
+        return DiscreteLogTableFile.openOrCreate(generator, maxScalar, BABY_STEPS, file, verifyChecksum);
+    }
+
+    private static void assertGenerated(ByteBuffer slots) {
+        assertEquals(expected.rewind(), slots.duplicate().rewind());
+    }
+
+    // Overwrites bytes of the file in place, keeping its size
+    private void patch(long offset, byte[] bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(offset);
+            raf.write(bytes);
+        }
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        assertGenerated(open(G, MAX_S, false));
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        ByteBuffer reopened = open(G, MAX_S, true);
+        assertGenerated(reopened);
+        assertEquals(modified, Files.getLastModifiedTime(file).toMillis());
+
+        DiscreteLogSolver solver = new DiscreteLogSolver(G, MAX_S, BABY_STEPS, reopened);
+        for (int s : new int[]{0, 1, BABY_STEPS - 1, BABY_STEPS, 4321, MAX_S - 1}) {
+            assertEquals(s, solver.solve(G.multiply(BigInteger.valueOf(s))), "s = " + s);
+        }
+    }
+
+    @Test
+    void truncatedFileIsRegenerated() throws IOException {
+        open(G, MAX_S, false);
+        long size = Files.size(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size / 2);
+        }
+
+        assertGenerated(open(G, MAX_S, false));
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    void badChecksumIsRegenerated() throws IOException {
+        open(G, MAX_S, false);
+        int slot = 0;
+        while (expected.getInt(slot * DiscreteLogSolver.SLOT_BYTES + Long.BYTES) == 0) {
+            slot++;
+        }
+        patch(DiscreteLogTableFile.HEADER_BYTES + (long) slot * DiscreteLogSolver.SLOT_BYTES, new byte[]{0x5A, 0x5A});
+
+        assertGenerated(open(G, MAX_S, true));
+    }
+
+    @Test
+    void otherMaxScalarIsRegenerated() throws IOException {
+        open(G, MAX_S + 1, false);
+
+        assertGenerated(open(G, MAX_S, false));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            raf.seek(16);
+            assertEquals(MAX_S, raf.readInt());
+        }
+    }
+
+    @Test
+    void otherCurveIsRegenerated() throws IOException {
+        ECPoint otherG = ECNamedCurveTable.getParameterSpec("secp256r1").getG();
+        open(otherG, MAX_S, false);
+
+        assertGenerated(open(G, MAX_S, false));
+    }
+
+    @Test
+    void otherVersionIsRegenerated() throws IOException {
+        open(G, MAX_S, false);
+        patch(4, new byte[]{0, 0, 0, 1});
+
+        assertGenerated(open(G, MAX_S, false));
+        assertTrue(Files.size(file) > DiscreteLogTableFile.HEADER_BYTES);
+    }
+}
@@ -0,0 +1,176 @@
+package com.antigravity.securedata.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scheme selection (deflate only when long enough and actually smaller), reading of
+ * existing AES-CBC payloads, rejection of tampered GCM payloads, and the bound on how
+ * far a payload may inflate.
+ */
+class PayloadCipherTest {
+
+    private static final int COMPRESS_MIN_BYTES = 256;
+    private static final int MAX_PLAIN_BYTES = 64 * 1024;
+
+    private final CryptoContextPool pool = new CryptoContextPool("secp256k1", 1);
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+    private CryptoContextPool.Context context;
+
+    @BeforeEach
+    void borrow() throws GeneralSecurityException {
+        context = pool.borrow();
+    }
+
+    @AfterEach
+    void release() {
+        pool.release(context);
+    }
+
+    private CryptographyService.EncryptedRecord encrypt(String data, boolean legacyCbc) throws GeneralSecurityException {
+        CryptographyService.EncryptedRecord record = new CryptographyService.EncryptedRecord();
+        PayloadCipher.encrypt(context, key, data, legacyCbc, COMPRESS_MIN_BYTES, MAX_PLAIN_BYTES, random, record);
+        return record;
+    }
+
+    private String decrypt(CryptographyService.EncryptedRecord record) throws GeneralSecurityException {
+        return PayloadCipher.decrypt(context, key, record, MAX_PLAIN_BYTES);
+    }
+
+    private static String compressible(int length) {
+        return "Follow-up chest X-ray in six weeks. ".repeat(length / 36 + 1).substring(0, length);
+    }
+
+    // Uniform 7-bit characters: Huffman coding saves at most 1 bit in 8, which at 256 bytes
+    // does not pay for the code table (deflates to 258 bytes) but does at 512 (482 bytes)
+    private static String random7Bit(int length) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) random.nextInt(128));
+        }
+        return text.toString();
+    }
+
+    // A GCM payload under the test key holding exactly these (already deflated or not) bytes
+    private CryptographyService.EncryptedRecord gcmRecord(byte scheme, byte[] payload) throws GeneralSecurityException {
+        CryptographyService.EncryptedRecord record = new CryptographyService.EncryptedRecord();
+        record.scheme = scheme;
+        record.iv = new byte[12];
+        random.nextBytes(record.iv);
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, record.iv));
+        record.encryptedData = gcm.doFinal(payload);
+        return record;
+    }
+
+    private static byte[] rawDeflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(input);
+        deflater.finish();
+        byte[] buffer = new byte[input.length + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        deflater.end();
+        byte[] out = new byte[length];
+        System.arraycopy(buffer, 0, out, 0, length);
+        return out;
+    }
+
+    @Test
+    void deflatesOnlyFromCompressMinBytes() throws GeneralSecurityException {
+        String shortText = compressible(COMPRESS_MIN_BYTES - 1);
+        CryptographyService.EncryptedRecord below = encrypt(shortText, false);
+        assertEquals(PayloadCipher.AES_GCM, below.scheme);
+        assertEquals(shortText, decrypt(below));
+
+        String longText = compressible(COMPRESS_MIN_BYTES);
+        CryptographyService.EncryptedRecord at = encrypt(longText, false);
+        assertEquals(PayloadCipher.AES_GCM_DEFLATE, at.scheme);
+        assertTrue(at.encryptedData.length < COMPRESS_MIN_BYTES, "deflated payload is smaller");
+        assertEquals(longText, decrypt(at));
+    }
+
+    @Test
+    void deflatesOnlyWhenSmaller() throws GeneralSecurityException {
+        String notSmaller = random7Bit(256);
+        CryptographyService.EncryptedRecord plain = encrypt(notSmaller, false);
+        assertEquals(PayloadCipher.AES_GCM, plain.scheme);
+        assertEquals(256 + 16, plain.encryptedData.length);
+        assertEquals(notSmaller, decrypt(plain));
+
+        String smaller = random7Bit(512);
+        CryptographyService.EncryptedRecord deflated = encrypt(smaller, false);
+        assertEquals(PayloadCipher.AES_GCM_DEFLATE, deflated.scheme);
+        assertTrue(deflated.encryptedData.length - 16 < 512, "deflated payload is smaller");
+        assertEquals(smaller, decrypt(deflated));
+    }
+
+    @Test
+    void decryptsExistingCbcRecords() throws GeneralSecurityException {
+        // Written the way records were before the scheme existed
+        String text = "Diagnosis: Flu";
+        CryptographyService.EncryptedRecord record = new CryptographyService.EncryptedRecord();
+        record.iv = new byte[16];
+        random.nextBytes(record.iv);
+        Cipher cbc = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cbc.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(record.iv));
+        record.encryptedData = cbc.doFinal(text.getBytes());
+
+        assertEquals(PayloadCipher.AES_CBC, record.scheme);
+        assertEquals(text, decrypt(record));
+
+        CryptographyService.EncryptedRecord legacy = encrypt(compressible(1000), true);
+        assertEquals(PayloadCipher.AES_CBC, legacy.scheme);
+        assertEquals(compressible(1000), decrypt(legacy));
+    }
+
+    @Test
+    void rejectsTamperedGcm() throws GeneralSecurityException {
+        for (String text : new String[]{"Diagnosis: Flu", compressible(1000)}) {
+            CryptographyService.EncryptedRecord record = encrypt(text, false);
+            for (int at : new int[]{0, record.encryptedData.length / 2, record.encryptedData.length - 1}) {
+                record.encryptedData[at] ^= 1;
+                assertThrows(GeneralSecurityException.class, () -> decrypt(record), "byte " + at);
+                record.encryptedData[at] ^= 1;
+            }
+            record.iv[0] ^= 1;
+            assertThrows(GeneralSecurityException.class, () -> decrypt(record));
+        }
+    }
+
+    @Test
+    void rejectsPayloadInflatingPastLimit() throws GeneralSecurityException {
+        byte[] atLimit = new byte[MAX_PLAIN_BYTES];
+        assertEquals(MAX_PLAIN_BYTES, decrypt(gcmRecord(PayloadCipher.AES_GCM_DEFLATE, rawDeflate(atLimit))).length());
+
+        // ~100 bytes of ciphertext that would otherwise expand to 10 MB
+        byte[] bomb = rawDeflate(new byte[10 * 1024 * 1024]);
+        assertTrue(bomb.length < 20 * 1024);
+        assertThrows(GeneralSecurityException.class, () -> decrypt(gcmRecord(PayloadCipher.AES_GCM_DEFLATE, bomb)));
+    }
+
+    @Test
+    void rejectsTextOverLimit() {
+        String text = compressible(MAX_PLAIN_BYTES + 1);
+        assertThrows(IllegalArgumentException.class, () -> encrypt(text, false));
+        assertThrows(IllegalArgumentException.class, () -> encrypt(text, true));
+    }
+}
@@ -1,5 +1,5 @@
 import React, { useEffect, useState } from 'react';
-import { getUsers, createRecord } from '../services/api';
+import { getUsers, createRecord, importRecords } from '../services/api';
 import { useToast } from '../components/Toast';
 
 const DoctorADashboard = () => {
@@ -7,6 +7,9 @@ const DoctorADashboard = () => {
     const [selectedPatient, setSelectedPatient] = useState('');
     const [diagnosis, setDiagnosis] = useState('');
     const [loading, setLoading] = useState(false);
+    const [importFile, setImportFile] = useState(null);
+    const [importing, setImporting] = useState(false);
+    const [importResult, setImportResult] = useState(null);
     const currentUser = JSON.parse(localStorage.getItem('currentUser'));
     const toast = useToast();
 
@@ -37,6 +40,29 @@ const DoctorADashboard = () => {
         }
     };
 
+    // Bulk import: one record per line, CSV (patientId,diagnosis) or NDJSON ({"patientId", "diagnosis"})
+    const handleImport = async (e) => {
+        e.preventDefault();
+        if (!importFile) return;
+
+        setImporting(true);
+        setImportResult(null);
+        try {
+            const res = await importRecords(currentUser.id, importFile);
+            setImportResult(res.data);
+            if (res.data.failed > 0) {
+                toast.error(`Imported ${res.data.imported} records, ${res.data.failed} lines failed.`);
+            } else {
+                toast.success(`Imported ${res.data.imported} records.`);
+            }
+        } catch (err) {
+            const msg = err.response?.data?.message || 'Import failed.';
+            toast.error(msg);
+        } finally {
+            setImporting(false);
+        }
+    };
+
     return (
         <div className="max-w-2xl mx-auto p-6 bg-white rounded shadow">
             <h2 className="text-2xl font-bold mb-4">{currentUser?.name} Dashboard</h2>
@@ -78,6 +104,38 @@ const DoctorADashboard = () => {
                     {loading ? 'Encrypting...' : 'Encrypt & Create Record'}
                 </button>
             </form>
+
+            <form onSubmit={handleImport} className="space-y-4 mt-8 pt-6 border-t">
+                <div>
+                    <label className="block text-sm font-medium text-gray-700">Import Records (.csv or .ndjson)</label>
+                    <p className="text-xs text-gray-500 mt-1">One record per line: patientId,diagnosis (CSV) or {'{"patientId": ..., "diagnosis": ...}'} (NDJSON)</p>
+                    <input
+                        type="file"
+                        accept=".csv,.ndjson,.jsonl"
+                        className="mt-2 block w-full text-sm"
+                        onChange={(e) => setImportFile(e.target.files[0] || null)}
+                    />
+                </div>
+
+                <button
+                    type="submit"
+                    disabled={importing || !importFile}
+                    className="w-full bg-blue-600 text-white py-2 rounded hover:bg-blue-700 disabled:opacity-50 disabled:cursor-not-allowed transition-colors"
+                >
+                    {importing ? 'Importing...' : 'Encrypt & Import File'}
+                </button>
+
+                {importResult && importResult.errors.length > 0 && (
+                    <div className="bg-red-50 p-4 rounded border border-red-200 text-sm">
+                        <strong className="text-red-800">Failed lines ({importResult.failed}):</strong>
+                        <ul className="mt-1 text-red-900">
+                            {importResult.errors.map(error => (
+                                <li key={error.line}>Line {error.line}: {error.error}</li>
+                            ))}
+                        </ul>
+                    </div>
+                )}
+            </form>
         </div>
     );
 };
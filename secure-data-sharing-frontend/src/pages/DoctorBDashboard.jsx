@@ -1,19 +1,33 @@
 import React, { useEffect, useState } from 'react';
-import { getSharedRecords, decryptSharedRecord } from '../services/api';
+import { getSharedRecordPage, decryptSharedRecord, decryptSharedRecords } from '../services/api';
 import { useToast } from '../components/Toast';
 
 const DoctorBDashboard = () => {
     const [sharedRecords, setSharedRecords] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingPage, setLoadingPage] = useState(false);
     const [decryptedData, setDecryptedData] = useState({});
     const [loadingId, setLoadingId] = useState(null);
     const currentUser = JSON.parse(localStorage.getItem('currentUser'));
     const toast = useToast();
 
+    // Shares come a page at a time, newest first; "Load More" appends the next page
+    const loadPage = async (cursor) => {
+        setLoadingPage(true);
+        try {
+            const res = await getSharedRecordPage(currentUser.id, cursor);
+            setSharedRecords(prev => cursor ? [...prev, ...res.data.items] : res.data.items);
+            setNextCursor(res.data.nextCursor);
+        } catch (err) {
+            console.error(err);
+        } finally {
+            setLoadingPage(false);
+        }
+    };
+
     useEffect(() => {
         if (currentUser?.id) {
-            getSharedRecords(currentUser.id)
-                .then(res => setSharedRecords(res.data))
-                .catch(console.error);
+            loadPage(null);
         }
     }, []);
 
@@ -30,11 +44,37 @@ const DoctorBDashboard = () => {
         }
     };
 
+    const handleDecryptAll = async () => {
+        setLoadingId('all');
+        try {
+            await decryptSharedRecords(currentUser.id, { all: true }, (result) => {
+                if (result.error) {
+                    toast.error(result.error);
+                    return;
+                }
+                setDecryptedData(prev => ({ ...prev, [result.id]: result.data }));
+            });
+        } catch (err) {
+            toast.error(err.message || 'Decryption failed.');
+        } finally {
+            setLoadingId(null);
+        }
+    };
+
     return (
         <div className="space-y-6">
             <div className="flex justify-between items-center">
                 <h2 className="text-2xl font-bold">Shared with Me ({currentUser?.name})</h2>
-                <span className="text-gray-600">{currentUser?.name}</span>
+                <div className="flex items-center gap-4">
+                    <button
+                        onClick={handleDecryptAll}
+                        disabled={loadingId === 'all' || sharedRecords.length === 0}
+                        className="px-4 py-2 bg-purple-600 text-white rounded hover:bg-purple-700 text-sm disabled:opacity-50 disabled:cursor-not-allowed transition-colors"
+                    >
+                        {loadingId === 'all' ? 'Decrypting...' : 'Decrypt All'}
+                    </button>
+                    <span className="text-gray-600">{currentUser?.name}</span>
+                </div>
             </div>
 
             <div className="grid gap-6">
@@ -43,15 +83,15 @@ const DoctorBDashboard = () => {
                         <div className="flex justify-between items-start mb-4">
                             <div>
                                 <h3 className="font-semibold text-lg text-purple-900">Shared Record</h3>
-                                <p className="text-sm text-gray-500">Shared At: {new Date(record.sharedAt).toLocaleString()}</p>
-                                <p className="text-sm text-gray-500">Original Record ID: {record.originalRecord?.id}</p>
+                                <p className="text-sm text-gray-500">Shared At: {new Date(record.timestamp).toLocaleString()}</p>
+                                <p className="text-sm text-gray-500">Patient: {record.patientName} (Dr. {record.doctorName})</p>
                             </div>
                         </div>
 
                         <div className="bg-gray-50 p-4 rounded mb-4 font-mono text-xs break-all">
                             <strong>Re-Encrypted Data (Server View):</strong>
                             <br />
-                            {record.reEncryptedData?.substring(0, 100)}...
+                            {record.encryptedData?.substring(0, 100)}...
                         </div>
 
                         {decryptedData[record.id] && (
@@ -71,6 +111,15 @@ const DoctorBDashboard = () => {
                     </div>
                 ))}
                 {sharedRecords.length === 0 && <p className="text-gray-500">No shared records found.</p>}
+                {nextCursor && (
+                    <button
+                        onClick={() => loadPage(nextCursor)}
+                        disabled={loadingPage}
+                        className="px-4 py-2 border border-gray-300 rounded hover:bg-gray-50 text-sm disabled:opacity-50 disabled:cursor-not-allowed transition-colors"
+                    >
+                        {loadingPage ? 'Loading...' : 'Load More'}
+                    </button>
+                )}
             </div>
         </div>
     );
@@ -1,9 +1,11 @@
 import React, { useEffect, useState } from 'react';
-import { getPatientRecords, decryptRecord, getUsers, shareRecord } from '../services/api';
+import { getPatientRecordPage, decryptRecord, decryptRecords, getUsers, shareRecord } from '../services/api';
 import { useToast } from '../components/Toast';
 
 const PatientDashboard = () => {
     const [records, setRecords] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingPage, setLoadingPage] = useState(false);
     const [doctors, setDoctors] = useState([]);
     const [decryptedData, setDecryptedData] = useState({});
     const [sharingRecord, setSharingRecord] = useState(null);
@@ -11,11 +13,23 @@ const PatientDashboard = () => {
     const currentUser = JSON.parse(localStorage.getItem('currentUser'));
     const toast = useToast();
 
+    // Records come a page at a time, newest first; "Load More" appends the next page
+    const loadPage = async (cursor) => {
+        setLoadingPage(true);
+        try {
+            const res = await getPatientRecordPage(currentUser.id, cursor);
+            setRecords(prev => cursor ? [...prev, ...res.data.items] : res.data.items);
+            setNextCursor(res.data.nextCursor);
+        } catch (err) {
+            console.error(err);
+        } finally {
+            setLoadingPage(false);
+        }
+    };
+
     useEffect(() => {
         if (currentUser?.id) {
-            getPatientRecords(currentUser.id)
-                .then(res => setRecords(res.data))
-                .catch(console.error);
+            loadPage(null);
         }
         getUsers()
             .then(res => setDoctors(res.data.filter(u => u.role === 'DOCTOR_B')))
@@ -35,6 +49,23 @@ const PatientDashboard = () => {
         }
     };
 
+    const handleDecryptAll = async () => {
+        setLoadingAction('decrypt-all');
+        try {
+            await decryptRecords(currentUser.id, { all: true }, (result) => {
+                if (result.error) {
+                    toast.error(result.error);
+                    return;
+                }
+                setDecryptedData(prev => ({ ...prev, [result.id]: result.data }));
+            });
+        } catch (err) {
+            toast.error(err.message || 'Decryption failed.');
+        } finally {
+            setLoadingAction(null);
+        }
+    };
+
     const handleShare = async (recordId, doctorId) => {
         setLoadingAction(`share-${recordId}`);
         try {
@@ -57,7 +88,16 @@ const PatientDashboard = () => {
         <div className="space-y-6">
             <div className="flex justify-between items-center">
                 <h2 className="text-2xl font-bold">My Medical Records</h2>
-                <span className="text-gray-600">{currentUser?.name}</span>
+                <div className="flex items-center gap-4">
+                    <button
+                        onClick={handleDecryptAll}
+                        disabled={loadingAction === 'decrypt-all' || records.length === 0}
+                        className="px-4 py-2 bg-blue-600 text-white rounded hover:bg-blue-700 text-sm disabled:opacity-50 disabled:cursor-not-allowed transition-colors"
+                    >
+                        {loadingAction === 'decrypt-all' ? 'Decrypting...' : 'Decrypt All'}
+                    </button>
+                    <span className="text-gray-600">{currentUser?.name}</span>
+                </div>
             </div>
 
             <div className="grid gap-6">
@@ -65,9 +105,9 @@ const PatientDashboard = () => {
                     <div key={record.id} className="bg-white p-6 rounded shadow border border-gray-100">
                         <div className="flex justify-between items-start mb-4">
                             <div>
-                                <h3 className="font-semibold text-lg">{record.description || "Medical Record"}</h3>
-                                <p className="text-sm text-gray-500">Created: {new Date(record.createdAt).toLocaleString()}</p>
-                                <p className="text-sm text-gray-500">Dr. {record.doctorA?.name}</p>
+                                <h3 className="font-semibold text-lg">Medical Record</h3>
+                                <p className="text-sm text-gray-500">Created: {new Date(record.timestamp).toLocaleString()}</p>
+                                <p className="text-sm text-gray-500">Dr. {record.doctorName}</p>
                             </div>
                         </div>
 
@@ -121,6 +161,15 @@ const PatientDashboard = () => {
                     </div>
                 ))}
                 {records.length === 0 && <p className="text-gray-500">No records found.</p>}
+                {nextCursor && (
+                    <button
+                        onClick={() => loadPage(nextCursor)}
+                        disabled={loadingPage}
+                        className="px-4 py-2 border border-gray-300 rounded hover:bg-gray-50 text-sm disabled:opacity-50 disabled:cursor-not-allowed transition-colors"
+                    >
+                        {loadingPage ? 'Loading...' : 'Load More'}
+                    </button>
+                )}
             </div>
         </div>
     );
@@ -9,11 +9,51 @@ const api = axios.create({
 
 export const getUsers = () => api.get('/users');
 export const createRecord = (data) => api.post('/doctorA/create-record', data);
-export const getPatientRecords = (patientId) => api.get(`/patient/${patientId}/records`);
 export const decryptRecord = (patientId, recordId) => api.get(`/patient/${patientId}/records/${recordId}/decrypt`);
 export const shareRecord = (data) => api.post('/patient/share', data);
-export const getSharedRecords = (doctorId) => api.get(`/doctorB/${doctorId}/shared-records`);
 export const decryptSharedRecord = (doctorId, sharedId) => api.get(`/doctorB/${doctorId}/shared-records/${sharedId}/decrypt`);
 export const createUser = (data) => api.post('/users', data);
 
+// Bulk import from a File (.csv or .ndjson); the server streams it and returns { imported, failed, errors }
+export const importRecords = (doctorId, file) => api.post(`/doctorA/${doctorId}/records/import`, file, {
+    headers: { 'Content-Type': file.name.endsWith('.csv') ? 'text/csv' : 'application/x-ndjson' },
+});
+
+// Keyset-paged listings: pass the previous response's nextCursor (null when there are no more pages)
+export const getPatientRecordPage = (patientId, cursor, size) =>
+    api.get(`/patient/${patientId}/records/page`, { params: { cursor, size } });
+export const getSharedRecordPage = (doctorId, cursor, size) =>
+    api.get(`/doctorB/${doctorId}/shared-records/page`, { params: { cursor, size } });
+
+// Bulk decrypt endpoints stream NDJSON (one line per record, in completion order).
+// axios buffers the whole body in the browser, so these use fetch and call onResult per line.
+const streamNdjson = async (url, body, onResult) => {
+    const res = await fetch(`${api.defaults.baseURL}${url}`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify(body),
+    });
+    if (!res.ok) {
+        const err = await res.json().catch(() => ({}));
+        throw new Error(err.message || 'Request failed.');
+    }
+
+    const reader = res.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    for (;;) {
+        const { done, value } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true });
+        const lines = buffer.split('\n');
+        buffer = lines.pop();
+        lines.filter(line => line.trim()).forEach(line => onResult(JSON.parse(line)));
+    }
+    if (buffer.trim()) onResult(JSON.parse(buffer));
+};
+
+// body: { recordIds: [...] } or { all: true }
+export const decryptRecords = (patientId, body, onResult) => streamNdjson(`/patient/${patientId}/records/decrypt`, body, onResult);
+export const decryptSharedRecords = (doctorId, body, onResult) => streamNdjson(`/doctorB/${doctorId}/shared-records/decrypt`, body, onResult);
+
 export default api;